@@ -0,0 +1,193 @@
+package com.sodirea.yikes.bench;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.physics.box2d.Box2D;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.sodirea.yikes.Yikes;
+import com.sodirea.yikes.assets.Assets;
+import com.sodirea.yikes.net.DatagramTransport;
+import com.sodirea.yikes.net.NetEvent;
+import com.sodirea.yikes.settings.Settings;
+import com.sodirea.yikes.states.GameStateManager;
+import com.sodirea.yikes.states.MenuState;
+import com.sodirea.yikes.states.MultiplayerState;
+import com.sodirea.yikes.states.PlayState;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+
+import static com.sodirea.yikes.sim.Simulation.GROUND_HEIGHT;
+
+// runs MenuState, PlayState and MultiplayerState under the headless backend, with a NoopGL20 standing in for the GPU, and counts the bytes the render
+// thread allocates over WINDOWS windows of MEASURED_FRAMES of update and render once each state has settled, so a change that brings back a per-frame
+// allocation fails the build instead of showing up as gc pauses on a phone. interpreted (-Xint, as the gradle task runs it) every window has to allocate
+// nothing at all. compiled, the jit allocates a few hundred bytes now and then on its own, in no bytecode of ours, so there a state only fails if every
+// window allocated. MultiplayerState plays against a server that isn't there, fed the messages it would have sent: our own ball is predicted, its inputs
+// sent and reconciled, and another player is interpolated.
+// run with: ./gradlew bench:allocationCheck, which check depends on
+public class AllocationCheck extends ApplicationAdapter {
+
+    public static final int WARMUP_FRAMES = 600; // ten seconds of game, enough for a state to load what it prepared and fill its pools
+    public static final int MEASURED_FRAMES = 600;
+    public static final int WINDOWS = 8;
+    public static final float FRAME_TIME = 1 / 60f;
+    public static final int ACKNOWLEDGED_LAG = 6; // steps between an input and the server's state for it reaching us, a tenth of a second
+    public static final int UNUSED_PORT = 5002; // nothing answers here, so the transport never connects and sends nothing
+    private static final String PREFERENCES = "yikes-allocation-check"; // kept apart from the game's own
+
+    private final CountDownLatch done;
+    private volatile boolean passed;
+    private com.sun.management.ThreadMXBean threads;
+    private long measuringCost; // what reading the counter allocates itself
+    private boolean interpreted; // whether the jit is off, so any allocation at all is ours
+    private SpriteBatch sb;
+    private Assets assets;
+    private Settings settings;
+    private GameStateManager gsm;
+    private MultiplayerState multiplayer; // fed its messages by frame(), while it is the state being run
+    private NetEvent event;
+    private long multiplayerStart; // about when the multiplayer state's clock started
+    private int acknowledged; // the input sequence the next OWN_STATE answers
+
+    public AllocationCheck() {
+        done = new CountDownLatch(1);
+        passed = false;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        AllocationCheck check = new AllocationCheck();
+        new HeadlessApplication(check);
+        check.done.await();
+        System.exit(check.passed ? 0 : 1);
+    }
+
+    // everything happens here, on the application's thread, which is the render thread the game runs its states on
+    @Override
+    public void create() {
+        try {
+            passed = run();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            done.countDown();
+            Gdx.app.exit();
+        }
+    }
+
+    private boolean run() {
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.out.println("This JVM can't count the bytes a thread allocates");
+            return false;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        interpreted = System.getProperty("java.vm.info", "").contains("interpreted");
+        measuringCost = Long.MAX_VALUE;
+        for (int i = 0; i < 100; i++) {
+            long before = allocatedBytes();
+            measuringCost = Math.min(measuringCost, allocatedBytes() - before);
+        }
+
+        Gdx.gl = Gdx.gl20 = new NoopGL20();
+        Box2D.init();
+        sb = new SpriteBatch();
+        assets = new Assets();
+        settings = new Settings(Gdx.app.getPreferences(PREFERENCES));
+        gsm = new GameStateManager(assets, settings);
+        event = new NetEvent();
+        try {
+            gsm.push(new MenuState(gsm)); // which prepares the other states' sounds and a course, a slice each frame
+            boolean clean = measure("MenuState");
+
+            gsm.set(new PlayState(gsm));
+            clean &= measure("PlayState");
+
+            System.setProperty("yikes.server", DatagramTransport.SCHEME + "://localhost:" + UNUSED_PORT);
+            multiplayerStart = TimeUtils.nanoTime();
+            multiplayer = new MultiplayerState(gsm);
+            gsm.set(multiplayer);
+            joinRoom();
+            clean &= measure("MultiplayerState");
+            return clean;
+        } finally {
+            gsm.dispose();
+            assets.dispose();
+            settings.dispose();
+            sb.dispose();
+        }
+    }
+
+    // warms the state on top up, then measures it over WINDOWS windows. returns whether it passed: interpreted, whether no window allocated anything,
+    // compiled, whether at least one window didn't
+    private boolean measure(String name) {
+        int frame = 0;
+        for (; frame < WARMUP_FRAMES || !gsm.isPrepared(); frame++) {
+            frame(frame);
+        }
+        int allocating = 0;
+        for (int window = 0; window < WINDOWS; window++) {
+            long before = allocatedBytes();
+            for (int i = 0; i < MEASURED_FRAMES; i++, frame++) {
+                frame(frame);
+            }
+            long allocated = allocatedBytes() - before - measuringCost;
+            System.out.println(name + ": " + allocated + " bytes allocated over " + MEASURED_FRAMES + " frames");
+            if (allocated > 0) {
+                allocating++;
+            }
+        }
+        return interpreted ? allocating == 0 : allocating < WINDOWS;
+    }
+
+    private void frame(int frame) {
+        if (multiplayer != null && gsm.peek() == multiplayer) {
+            receive(frame);
+        }
+        gsm.update(FRAME_TIME);
+        gsm.render(sb);
+    }
+
+    // what a server would send on putting us in a room with one other player
+    private void joinRoom() {
+        event.type = NetEvent.LEVEL;
+        event.seed = 1;
+        multiplayer.handle(event);
+        event.type = NetEvent.CONNECTED;
+        event.id = "room";
+        multiplayer.handle(event);
+        event.type = NetEvent.NEW_PLAYER;
+        event.id = "other";
+        event.number = 1;
+        multiplayer.handle(event);
+        acknowledged = -ACKNOWLEDGED_LAG; // our first input is numbered 0
+    }
+
+    // the other player's state, swaying from side to side, and our own as of ACKNOWLEDGED_LAG steps ago, off by enough every other time to be replayed
+    private void receive(int frame) {
+        event.type = NetEvent.PLAYER_STATE;
+        event.time = (TimeUtils.nanoTime() - multiplayerStart) / 1000000000f;
+        event.number = 1;
+        event.x = Yikes.WIDTH / 2 + 100 * MathUtils.sin(frame * FRAME_TIME);
+        event.y = GROUND_HEIGHT;
+        event.velocityX = 100 * MathUtils.cos(frame * FRAME_TIME);
+        event.velocityY = 0;
+        event.origin = 0;
+        multiplayer.handle(event);
+
+        event.type = NetEvent.OWN_STATE;
+        event.number = acknowledged++;
+        event.x = Yikes.WIDTH / 2 + (frame % 2 == 0 ? 0 : 50);
+        event.y = GROUND_HEIGHT;
+        event.velocityX = 0;
+        event.velocityY = 0;
+        multiplayer.handle(event);
+    }
+
+    private long allocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,67 @@
+package com.sodirea.yikes.bench;
+
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.sodirea.yikes.sim.Course;
+import com.sodirea.yikes.sim.Simulation;
+import com.sodirea.yikes.sim.SimulationAdapter;
+import com.sodirea.yikes.sprites.Ball;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.sodirea.yikes.sim.Simulation.GROUND_HEIGHT;
+import static com.sodirea.yikes.sim.Simulation.WIDTH;
+
+// starting a run with one player, on a freshly built world versus a reused Course, and a remote player joining and leaving a multiplayer client
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CourseBenchmark {
+
+    private static final long SEED = 1; // the same course every run
+
+    private SimulationAdapter listener;
+    private Course course;
+
+    @Setup
+    public void setup() {
+        listener = new SimulationAdapter();
+        course = new Course();
+    }
+
+    @Benchmark
+    public Simulation newRun() {
+        Simulation sim = new Simulation(listener, SEED);
+        sim.addPlayer("bench", false);
+        sim.dispose();
+        return sim;
+    }
+
+    @Benchmark
+    public Simulation pooledRun() {
+        Simulation sim = new Simulation(listener, SEED, course);
+        sim.addPlayer("bench", false);
+        course.reset();
+        return sim;
+    }
+
+    @Benchmark
+    public Ball remotePlayerChurn() {
+        Ball ball = course.obtainBall(BodyDef.BodyType.KinematicBody, WIDTH / 2 - Ball.SIZE / 2, GROUND_HEIGHT);
+        course.freeBall(ball);
+        return ball;
+    }
+
+    @TearDown
+    public void tearDown() {
+        course.dispose();
+    }
+}
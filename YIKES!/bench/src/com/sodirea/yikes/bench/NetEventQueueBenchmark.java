@@ -0,0 +1,54 @@
+package com.sodirea.yikes.bench;
+
+import com.sodirea.yikes.net.NetEvent;
+import com.sodirea.yikes.net.NetEventQueue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// posting a worldState's worth of player states from a full room and draining them, the way MultiplayerState hands messages to the render thread. run with the gc profiler to check it allocates nothing
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class NetEventQueueBenchmark {
+
+    private static final int EVENTS_PER_FRAME = 8;
+
+    private NetEventQueue queue;
+    private NetEventQueue.Handler handler;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setup(Blackhole bh) {
+        queue = new NetEventQueue(256);
+        blackhole = bh;
+        handler = new NetEventQueue.Handler() {
+            @Override
+            public void handle(NetEvent event) {
+                blackhole.consume(event.number);
+                blackhole.consume(event.x);
+            }
+        };
+    }
+
+    @Benchmark
+    public int postAndDrain() {
+        for (int i = 0; i < EVENTS_PER_FRAME; i++) {
+            NetEvent event = queue.claim();
+            event.type = NetEvent.PLAYER_STATE;
+            event.number = i;
+            event.x = 215.5f;
+            event.y = 1834.25f;
+            queue.publish(event);
+        }
+        return queue.drain(handler);
+    }
+}
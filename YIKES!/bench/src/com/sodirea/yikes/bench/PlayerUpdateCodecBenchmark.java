@@ -0,0 +1,97 @@
+package com.sodirea.yikes.bench;
+
+import com.sodirea.yikes.net.PacketReader;
+import com.sodirea.yikes.net.PacketWriter;
+import com.sodirea.yikes.net.Protocol;
+import com.sodirea.yikes.net.WorldSnapshot;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// encoding and decoding one player's ball, both as the old JSON playerUpdate text and as an entry of the binary worldState MultiplayerState and the server now use,
+// in full and as the difference from a snapshot one broadcast earlier
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PlayerUpdateCodecBenchmark {
+
+    private String encoded;
+    private byte[] encodedBinary;
+    private PacketWriter writer;
+    private PacketReader reader;
+    private WorldSnapshot baseline;
+    private WorldSnapshot current;
+    private WorldSnapshot decoded;
+
+    @Setup
+    public void setup() throws JSONException {
+        JSONObject data = new JSONObject();
+        data.put("x", 215.5f);
+        data.put("y", 1834.25f);
+        data.put("velocityX", -12.75f);
+        data.put("velocityY", 50f);
+        data.put("id", "Xk3vQ9aTb2Lr8mPwAAAB");
+        encoded = data.toString();
+        writer = new PacketWriter();
+        reader = new PacketReader();
+        baseline = new WorldSnapshot(1);
+        baseline.reset(1);
+        baseline.put(3, Protocol.quantizeX(215.5f), Protocol.quantizeY(1831.5f), Protocol.quantizeVelocity(-12.75f), Protocol.quantizeVelocity(55f));
+        current = new WorldSnapshot(1);
+        current.reset(2);
+        current.put(3, Protocol.quantizeX(215.5f), Protocol.quantizeY(1834.25f), Protocol.quantizeVelocity(-12.75f), Protocol.quantizeVelocity(50f));
+        decoded = new WorldSnapshot(1);
+        encodedBinary = encodeBinary();
+    }
+
+    @Benchmark
+    public String encode() throws JSONException {
+        JSONObject data = new JSONObject();
+        data.put("x", 215.5f);
+        data.put("y", 1834.25f);
+        data.put("velocityX", -12.75f);
+        data.put("velocityY", 50f);
+        return data.toString();
+    }
+
+    @Benchmark
+    public void decode(Blackhole bh) throws JSONException {
+        JSONObject data = new JSONObject(encoded);
+        bh.consume(data.getString("id"));
+        bh.consume((float) data.getDouble("x"));
+        bh.consume((float) data.getDouble("y"));
+        bh.consume((float) data.getDouble("velocityX"));
+        bh.consume((float) data.getDouble("velocityY"));
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        Protocol.writeSnapshot(Protocol.begin(writer), current, null);
+        return writer.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodeDelta() {
+        Protocol.writeSnapshot(Protocol.begin(writer), current, baseline);
+        return writer.toByteArray();
+    }
+
+    @Benchmark
+    public void decodeBinary(Blackhole bh) {
+        Protocol.begin(reader, encodedBinary);
+        Protocol.readSnapshot(reader, null, decoded, 2);
+        bh.consume(Protocol.dequantizeX(decoded.getX(0)));
+        bh.consume(Protocol.dequantizeY(decoded.getY(0)));
+        bh.consume(Protocol.dequantizeVelocity(decoded.getVelocityX(0)));
+        bh.consume(Protocol.dequantizeVelocity(decoded.getVelocityY(0)));
+    }
+}
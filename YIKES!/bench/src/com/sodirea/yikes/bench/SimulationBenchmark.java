@@ -0,0 +1,50 @@
+package com.sodirea.yikes.bench;
+
+import com.sodirea.yikes.sim.InputCommand;
+import com.sodirea.yikes.sim.PhysicsClock;
+import com.sodirea.yikes.sim.Simulation;
+import com.sodirea.yikes.sim.SimulationAdapter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+// one fixed step of the single player game, i.e. everything PlayState does per step minus the drawing
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SimulationBenchmark {
+
+    private static final long SEED = 1; // the same course every run
+    private static final int STEPS_BETWEEN_JUMPS = 30; // about two jumps a second, so contacts and scoring get exercised too
+
+    private Simulation sim;
+    private InputCommand input;
+    private int steps;
+
+    @Setup
+    public void setup() {
+        sim = new Simulation(new SimulationAdapter(), SEED);
+        input = sim.addPlayer("bench", true).getInput();
+        steps = 0;
+    }
+
+    @Benchmark
+    public Simulation tick() {
+        input.jump = steps++ % STEPS_BETWEEN_JUMPS == 0;
+        sim.step(PhysicsClock.STEP_INTERVAL);
+        return sim;
+    }
+
+    @TearDown
+    public void tearDown() {
+        sim.dispose();
+    }
+}
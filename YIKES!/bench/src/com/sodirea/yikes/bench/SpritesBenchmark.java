@@ -0,0 +1,70 @@
+package com.sodirea.yikes.bench;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Box2D;
+import com.badlogic.gdx.physics.box2d.World;
+import com.sodirea.yikes.sim.LevelGenerator;
+import com.sodirea.yikes.sim.PhysicsClock;
+import com.sodirea.yikes.sprites.Boulder;
+import com.sodirea.yikes.sprites.Platform;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.sodirea.yikes.sim.Simulation.GRAVITY;
+import static com.sodirea.yikes.sim.Simulation.WALL_WIDTH;
+
+// the per step bookkeeping of a single platform or boulder, outside of the world step
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SpritesBenchmark {
+
+    private static final long SEED = 1; // the same course every run
+
+    private World world;
+    private LevelGenerator level;
+    private Platform platform;
+    private Boulder boulder;
+    private int row;
+
+    @Setup
+    public void setup() {
+        Box2D.init();
+        world = new World(new Vector2(0, GRAVITY), true);
+        level = new LevelGenerator(SEED);
+        row = 1;
+        platform = new Platform(level, row, world);
+        boulder = new Boulder(WALL_WIDTH, 0, world);
+    }
+
+    @Benchmark
+    public Platform platformReposition() {
+        row++;
+        platform.reposition(level.holeX(row), LevelGenerator.rowY(row), level.holeWidth(row));
+        return platform;
+    }
+
+    @Benchmark
+    public Boulder boulderWallBounce() {
+        // put the boulder against the left wall so every update takes the bounce branch
+        boulder.reposition(WALL_WIDTH, 0, -25);
+        boulder.update(PhysicsClock.STEP_INTERVAL);
+        return boulder;
+    }
+
+    @TearDown
+    public void tearDown() {
+        platform.dispose();
+        boulder.dispose();
+        world.dispose();
+    }
+}
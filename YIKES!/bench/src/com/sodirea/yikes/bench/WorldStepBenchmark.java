@@ -0,0 +1,73 @@
+package com.sodirea.yikes.bench;
+
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.sodirea.yikes.sim.Simulation;
+import com.sodirea.yikes.sim.SimulationAdapter;
+import com.sodirea.yikes.sprites.Ball;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.sodirea.yikes.sim.Simulation.GROUND_HEIGHT;
+import static com.sodirea.yikes.sim.Simulation.TIME_STEP;
+import static com.sodirea.yikes.sim.Simulation.WALL_WIDTH;
+
+// just the Box2D step, with the usual 6 platforms and 6 boulders plus a number of balls, like a multiplayer room with that many players.
+// with kinematic set, every ball but the first is a kinematic one, like the other players on a multiplayer client
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class WorldStepBenchmark {
+
+    private static final long SEED = 1; // the same course every run
+
+    @Param({ "1", "4", "16" })
+    public int balls;
+
+    @Param({ "false", "true" })
+    public boolean kinematic;
+
+    private Simulation sim;
+    private World world;
+    private Array<Ball> remoteBalls;
+
+    @Setup
+    public void setup() {
+        sim = new Simulation(new SimulationAdapter(), SEED);
+        world = sim.getWorld();
+        // spread the balls out along the ground, stacking them in rows when they don't fit
+        int ballsPerRow = (Simulation.WIDTH - 2 * WALL_WIDTH) / Ball.SIZE;
+        remoteBalls = new Array<Ball>();
+        for (int i = 0; i < balls; i++) {
+            float x = WALL_WIDTH + (i % ballsPerRow) * Ball.SIZE;
+            float y = GROUND_HEIGHT + (i / ballsPerRow) * Ball.SIZE;
+            if (kinematic && i > 0) {
+                remoteBalls.add(sim.getCourse().obtainBall(BodyDef.BodyType.KinematicBody, x, y));
+            } else {
+                sim.addPlayer(Integer.toString(i), false).getBall().setPosition(x, y);
+            }
+        }
+    }
+
+    @Benchmark
+    public World step() {
+        world.step(TIME_STEP, 6, 2);
+        return world;
+    }
+
+    @TearDown
+    public void tearDown() {
+        sim.dispose(); // along with the remote balls, which are the course's
+    }
+}
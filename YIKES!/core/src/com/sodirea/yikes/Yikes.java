@@ -1,33 +1,50 @@
 package com.sodirea.yikes;
 
+import com.badlogic.gdx.Application;
 import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.Preferences;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.profiling.GLProfiler;
+import com.sodirea.yikes.assets.Assets;
+import com.sodirea.yikes.settings.Settings;
+import com.sodirea.yikes.sim.Simulation;
 import com.sodirea.yikes.states.GameStateManager;
-import com.sodirea.yikes.states.MenuState;
+import com.sodirea.yikes.states.LoadingState;
 
 public class Yikes extends ApplicationAdapter {
 
-	public static final int WIDTH = 480;
-	public static final int HEIGHT = 800;
+	public static final int WIDTH = Simulation.WIDTH;
+	public static final int HEIGHT = Simulation.HEIGHT;
 	public static final String TITLE = "YIKES!";
 	private SpriteBatch sb;
+	private Assets assets;
+	private Settings settings;
 	private GameStateManager gsm;
-	private Preferences prefs;
+
+	// per-frame rendering statistics, used to check that a frame is drawn in as few batch flushes as possible
+	private GLProfiler profiler;
+	private int lastTotalRenderCalls;
+	private int batchFlushes;
+	private int drawCalls;
+	private int textureBindings;
+	private float statsTimer;
 
 	@Override
 	public void create () {
 		Gdx.gl.glClearColor(1, 0, 0, 1);
 		sb = new SpriteBatch();
-		gsm = new GameStateManager();
-		gsm.push(new MenuState(gsm));
+		profiler = new GLProfiler(Gdx.graphics);
+		if (Gdx.app.getLogLevel() >= Application.LOG_DEBUG) { // the profiler wraps every gl call, so only pay for it while debugging
+			profiler.enable();
+		}
+		assets = new Assets();
+		settings = new Settings(Gdx.app.getPreferences(Settings.NAME));
+		gsm = new GameStateManager(assets, settings);
+		gsm.push(new LoadingState(gsm)); // draws from the first frame, and loads the menu's assets a slice at a time
 
-		// storing the requirements for each unlock in preferences
-		prefs = Gdx.app.getPreferences("Prefs");
-		prefs.putInteger("DOUBLE JUMP Score Requirements", 50);
-		prefs.flush();
+		// storing the requirements for each unlock in the settings
+		settings.putInteger("DOUBLE JUMP Score Requirements", 50);
 	}
 
 	@Override
@@ -35,10 +52,44 @@ public class Yikes extends ApplicationAdapter {
 		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 		gsm.update(Gdx.graphics.getDeltaTime());
 		gsm.render(sb);
+
+		batchFlushes = sb.totalRenderCalls - lastTotalRenderCalls;
+		lastTotalRenderCalls = sb.totalRenderCalls;
+		if (profiler.isEnabled()) {
+			drawCalls = profiler.getDrawCalls();
+			textureBindings = profiler.getTextureBindings();
+			profiler.reset();
+			statsTimer += Gdx.graphics.getDeltaTime();
+			if (statsTimer >= 1) {
+				statsTimer = 0;
+				Gdx.app.debug("Render", "batch flushes: " + batchFlushes + ", draw calls: " + drawCalls + ", texture bindings: " + textureBindings
+						+ ", sprites drawn: " + gsm.getRenderList().getDrawn() + ", culled: " + gsm.getRenderList().getCulled());
+			}
+		}
+	}
+
+	public int getBatchFlushes() {
+		return batchFlushes;
+	}
+
+	public int getDrawCalls() {
+		return drawCalls;
+	}
+
+	public int getTextureBindings() {
+		return textureBindings;
 	}
 	
+	@Override
+	public void pause () {
+		settings.pause();
+	}
+
 	@Override
 	public void dispose () {
 		sb.dispose();
+		gsm.dispose();
+		assets.dispose();
+		settings.dispose();
 	}
 }
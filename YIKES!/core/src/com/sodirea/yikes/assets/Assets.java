@@ -0,0 +1,202 @@
+package com.sodirea.yikes.assets;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.ObjectMap;
+
+public class Assets {
+
+    public static final String ATLAS = "yikes.atlas"; // generated by the packTextures gradle task from android/assets-raw
+
+    private AssetManager manager;
+    private ObjectIntMap<String> references; // how many states and sprites are currently borrowing each asset
+    private ObjectMap<String, BitmapFont> fonts; // fonts are built from atlas regions, so they are tracked outside of the AssetManager
+    private Array<String> queued; // preloaded assets the manager hasn't finished loading yet
+    private int hits;
+    private int misses;
+
+    // creates the shared asset cache. it is owned by Yikes and handed to every state through the GameStateManager
+    public Assets() {
+        manager = new AssetManager();
+        references = new ObjectIntMap<String>();
+        fonts = new ObjectMap<String, BitmapFont>();
+        queued = new Array<String>();
+        hits = 0;
+        misses = 0;
+    }
+
+    // borrows an asset, decoding it only if nobody else is holding it already. every acquire must be matched by a release
+    public <T> T acquire(String fileName, Class<T> type) {
+        if (manager.isLoaded(fileName)) {
+            hits++;
+        } else {
+            misses++;
+            if (!queued.removeValue(fileName, false)) {
+                manager.load(fileName, type);
+            }
+            manager.finishLoadingAsset(fileName); // for a preloaded asset, only whatever of it update() hasn't got to yet
+        }
+        references.getAndIncrement(fileName, 0, 1);
+        return manager.get(fileName, type);
+    }
+
+    // borrows an asset like acquire does, but without waiting for it: it is queued, and update() loads it a slice at a time. an acquire before it is done
+    // finishes loading just that asset. every preload must be matched by a release
+    public void preload(String fileName, Class<?> type) {
+        if (!manager.isLoaded(fileName) && !queued.contains(fileName, false)) {
+            manager.load(fileName, type);
+            queued.add(fileName);
+        }
+        references.getAndIncrement(fileName, 0, 1);
+    }
+
+    // spends up to millis loading preloaded assets, to be called once a frame. decoding happens on the AssetManager's own thread, and what has to touch GL,
+    // like uploading a texture, is done here. returns whether everything preloaded is in
+    public boolean update(int millis) {
+        if (queued.size == 0) {
+            return true;
+        }
+        boolean done = manager.update(millis);
+        for (int i = queued.size - 1; i >= 0; i--) {
+            if (manager.isLoaded(queued.get(i))) {
+                queued.removeIndex(i);
+            }
+        }
+        return done;
+    }
+
+    // whether anything preloaded is still on its way
+    public boolean isLoading() {
+        return queued.size > 0;
+    }
+
+    // how much of what was queued has loaded, from 0 to 1
+    public float getProgress() {
+        return manager.getProgress();
+    }
+
+    public Texture getTexture(String fileName) {
+        return acquire(fileName, Texture.class);
+    }
+
+    public Sound getSound(String fileName) {
+        return acquire(fileName, Sound.class);
+    }
+
+    // borrows the packed texture atlas that every sprite, background and font page is drawn from
+    public TextureAtlas getAtlas() {
+        return acquire(ATLAS, TextureAtlas.class);
+    }
+
+    // borrows a region of the packed texture atlas. the region shares the atlas' texture, so it must be given back with release(ATLAS)
+    public TextureRegion getRegion(String name) {
+        TextureRegion region = getAtlas().findRegion(name);
+        if (region == null) {
+            release(ATLAS);
+            throw new GdxRuntimeException("No region named " + name + " in " + ATLAS);
+        }
+        return region;
+    }
+
+    // borrows a bitmap font whose pages are packed into the texture atlas, so drawing text does not switch textures mid-batch
+    public BitmapFont getFont(String fileName) {
+        BitmapFont font = fonts.get(fileName);
+        if (font != null) {
+            hits++;
+        } else {
+            misses++;
+            TextureAtlas atlas = getAtlas(); // the font holds on to the atlas until it is unloaded
+            BitmapFont.BitmapFontData data = new BitmapFont.BitmapFontData(Gdx.files.internal(fileName), false);
+            Array<TextureRegion> pages = new Array<TextureRegion>();
+            for (String imagePath : data.imagePaths) {
+                String page = imagePath.substring(imagePath.lastIndexOf('/') + 1, imagePath.lastIndexOf('.'));
+                TextureRegion region = atlas.findRegion(page);
+                if (region == null) {
+                    release(ATLAS);
+                    throw new GdxRuntimeException("No region named " + page + " in " + ATLAS + " for font " + fileName);
+                }
+                pages.add(region);
+            }
+            font = new BitmapFont(data, pages, true);
+            fonts.put(fileName, font);
+        }
+        references.getAndIncrement(fileName, 0, 1);
+        return font;
+    }
+
+    // gives back a borrowed asset. once the last borrower releases it, the asset is unloaded from memory
+    public void release(String fileName) {
+        int count = references.getAndIncrement(fileName, 0, -1) - 1;
+        if (count <= 0) {
+            references.remove(fileName, 0);
+            BitmapFont font = fonts.remove(fileName);
+            if (font != null) {
+                font.dispose();
+                release(ATLAS);
+            } else if (queued.removeValue(fileName, false) || manager.isLoaded(fileName)) {
+                manager.unload(fileName); // which also takes an asset that is still queued out of the queue
+            }
+        }
+    }
+
+    public int getReferenceCount(String fileName) {
+        return references.get(fileName, 0);
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+    // estimates how many bytes of texture memory are currently uploaded to the GPU, including the atlas pages
+    public long getResidentBytes() {
+        long bytes = 0;
+        Array<String> names = manager.getAssetNames();
+        for (int i = 0; i < names.size; i++) {
+            String name = names.get(i);
+            if (manager.getAssetType(name) == Texture.class) {
+                Texture texture = manager.get(name, Texture.class);
+                bytes += (long) texture.getWidth() * texture.getHeight() * bytesPerPixel(texture.getTextureData().getFormat());
+            }
+        }
+        return bytes;
+    }
+
+    private static int bytesPerPixel(Pixmap.Format format) {
+        switch (format) {
+            case Alpha:
+            case Intensity:
+                return 1;
+            case LuminanceAlpha:
+            case RGB565:
+            case RGBA4444:
+                return 2;
+            case RGB888:
+                return 3;
+            default:
+                return 4;
+        }
+    }
+
+    public void dispose() {
+        for (BitmapFont font : fonts.values()) {
+            font.dispose();
+        }
+        fonts.clear();
+        queued.clear();
+        references.clear();
+        manager.dispose();
+    }
+}
@@ -0,0 +1,103 @@
+package com.sodirea.yikes.net;
+
+// estimates the round trip time to the server, how much it varies, and how far the server's clock is ahead of ours, from ping/pong exchanges.
+// each pong says what the server's clock read when it answered; assuming that happened halfway through the round trip gives one offset sample.
+// a sample is only as good as its round trip was short, since a delay in one direction shifts it by half the delay, so like NTP the offset comes from the
+// sample with the shortest round trip among the last SAMPLES. the round trip and jitter are smoothed the way TCP does (RFC 6298).
+// all times are in seconds: local ones on the caller's clock, server ones on the server's
+public class ClockSync {
+
+    public static final int SAMPLES = 8;
+    public static final int MIN_SAMPLES = 3; // how many pongs before the estimates are worth using
+    public static final int MAX_PINGS_IN_FLIGHT = 8;
+
+    private final int[] pingIds;
+    private final float[] pingTimes;
+    private final float[] roundTrips;
+    private final double[] offsets;
+    private int nextPingId;
+    private int nextSample;
+    private int sampleCount;
+    private float roundTrip; // smoothed
+    private float jitter; // smoothed mean deviation of the round trip
+    private double offset; // server time minus local time
+
+    public ClockSync() {
+        pingIds = new int[MAX_PINGS_IN_FLIGHT];
+        pingTimes = new float[MAX_PINGS_IN_FLIGHT];
+        roundTrips = new float[SAMPLES];
+        offsets = new double[SAMPLES];
+        for (int i = 0; i < MAX_PINGS_IN_FLIGHT; i++) {
+            pingIds[i] = -1;
+        }
+        nextPingId = 0;
+        nextSample = 0;
+        sampleCount = 0;
+        roundTrip = 0;
+        jitter = 0;
+        offset = 0;
+    }
+
+    // remembers that a ping is being sent now, returning the id to send with it. a ping that is never answered is forgotten MAX_PINGS_IN_FLIGHT pings later
+    public int ping(float now) {
+        int id = nextPingId++;
+        pingIds[id % MAX_PINGS_IN_FLIGHT] = id;
+        pingTimes[id % MAX_PINGS_IN_FLIGHT] = now;
+        return id;
+    }
+
+    // takes in the server's answer to ping id, received at now. returns false if the ping is unknown or was already answered
+    public boolean pong(int id, double serverTime, float now) {
+        int slot = id % MAX_PINGS_IN_FLIGHT;
+        if (id < 0 || pingIds[slot] != id) {
+            return false;
+        }
+        pingIds[slot] = -1;
+        float sample = Math.max(0, now - pingTimes[slot]);
+        roundTrips[nextSample] = sample;
+        offsets[nextSample] = serverTime - (pingTimes[slot] + sample / 2);
+        nextSample = (nextSample + 1) % SAMPLES;
+        sampleCount = Math.min(sampleCount + 1, SAMPLES);
+
+        if (sampleCount == 1) {
+            roundTrip = sample;
+            jitter = sample / 2;
+        } else {
+            jitter += (Math.abs(roundTrip - sample) - jitter) / 4;
+            roundTrip += (sample - roundTrip) / 8;
+        }
+        int best = 0;
+        for (int i = 1; i < sampleCount; i++) {
+            if (roundTrips[i] < roundTrips[best]) {
+                best = i;
+            }
+        }
+        offset = offsets[best];
+        return true;
+    }
+
+    public boolean isSynchronized() {
+        return sampleCount >= MIN_SAMPLES;
+    }
+
+    public float getRoundTrip() {
+        return roundTrip;
+    }
+
+    public float getJitter() {
+        return jitter;
+    }
+
+    // how far the server's clock is ahead of ours
+    public double getOffset() {
+        return offset;
+    }
+
+    public double toServerTime(float localTime) {
+        return localTime + offset;
+    }
+
+    public float toLocalTime(double serverTime) {
+        return (float) (serverTime - offset);
+    }
+}
@@ -0,0 +1,78 @@
+package com.sodirea.yikes.net;
+
+// the layout of datagrams when the game runs over UDP instead of socket.io, shared by DatagramTransport and the server's DatagramServer. every datagram starts
+// with its kind:
+//
+//   CONNECT (client to server):    Protocol.VERSION. repeated every CONNECT_RETRY_NANOS until ACCEPT comes back
+//   ACCEPT (server to client):     nothing
+//   DISCONNECT (either way):       nothing. a peer that hears nothing for TIMEOUT_NANOS drops the other just the same
+//   RELIABLE (either way):         sequence, event name, JSON data (empty for none)
+//   ACK (either way):              the newest reliable sequence received along with every one before it
+//   UNRELIABLE (either way):       event, sequence, then the binary message exactly as Protocol lays it out
+//
+// RELIABLE carries the rare JSON events and is resent until acknowledged, and delivered in order, see ReliableChannel. ACK doubles as a heartbeat, sent every
+// KEEPALIVE_NANOS when nothing else was. UNRELIABLE carries the frequent binary messages, which are never resent: one that arrives after a newer one of the same
+// event is dropped rather than delivered late, so a lost worldState costs only itself instead of holding up every later one like it would over TCP.
+// event is an index into UNRELIABLE_EVENTS, and sequences are varints counting up from 1 separately for each direction, and for each unreliable event
+public final class DatagramProtocol {
+
+    public static final int CONNECT = 0;
+    public static final int ACCEPT = 1;
+    public static final int DISCONNECT = 2;
+    public static final int RELIABLE = 3;
+    public static final int ACK = 4;
+    public static final int UNRELIABLE = 5;
+
+    public static final String[] UNRELIABLE_EVENTS = { "input", "clockPing", "worldState", "clockPong" };
+
+    public static final int MAX_DATAGRAM = 1200; // comfortably under any path's MTU, so nothing is ever fragmented. a full room's getPlayers is under half that
+    public static final long CONNECT_RETRY_NANOS = 250000000L;
+    public static final int CONNECT_ATTEMPTS = 20; // five seconds of trying
+    public static final long KEEPALIVE_NANOS = 1000000000L;
+    public static final long TIMEOUT_NANOS = 5000000000L;
+    public static final long POLL_MILLIS = 10; // how long a transport thread waits for a datagram before it checks for resends and heartbeats
+
+    private DatagramProtocol() {
+    }
+
+    // the index of an unreliable event, or -1 if it has to go reliably
+    public static int unreliableEvent(String event) {
+        for (int i = 0; i < UNRELIABLE_EVENTS.length; i++) {
+            if (UNRELIABLE_EVENTS[i].equals(event)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static void writeUnreliable(PacketWriter out, int event, int sequence, byte[] message) {
+        writeUnreliable(out, event, sequence, message, message.length);
+    }
+
+    // the first length bytes of message
+    public static void writeUnreliable(PacketWriter out, int event, int sequence, byte[] message, int length) {
+        out.reset().writeByte(UNRELIABLE);
+        out.writeByte(event);
+        out.writeVarInt(sequence);
+        out.writeBytes(message, 0, length);
+        checkSize(out);
+    }
+
+    public static void writeAck(PacketWriter out, int sequence) {
+        out.reset().writeByte(ACK);
+        out.writeVarInt(sequence);
+    }
+
+    public static void writeControl(PacketWriter out, int kind) {
+        out.reset().writeByte(kind);
+        if (kind == CONNECT) {
+            out.writeByte(Protocol.VERSION);
+        }
+    }
+
+    public static void checkSize(PacketWriter out) {
+        if (out.size() > MAX_DATAGRAM) {
+            throw new IllegalArgumentException("A " + out.size() + " byte datagram is over the " + MAX_DATAGRAM + " byte limit");
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.sodirea.yikes.net;
+
+import org.json.JSONException;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+// everything over UDP, laid out as DatagramProtocol says, with a thread of its own that receives, resends reliable messages and sends heartbeats. a lost
+// worldState is simply skipped, since the next one is encoded against a snapshot we acknowledged anyway, and a lost input is covered by the next one, since
+// MultiplayerState repeats every input the server hasn't acknowledged in each message. simulatedLoss drops that fraction of datagrams on purpose, both sent
+// and received, so how the game copes can be tried against a local server
+public class DatagramTransport implements Transport {
+
+    public static final String SCHEME = "udp"; // a server url of udp://host:port picks this transport
+
+    private final InetSocketAddress server;
+    private final float simulatedLoss;
+    private final Random random;
+    private final Map<String, Listener> listeners;
+    private final ReliableChannel reliable;
+    private final ReliableChannel.Sender sender;
+    private final int[] sentSequences; // the last unreliable sequence sent for each event, under this
+    private final int[] receivedSequences; // the newest received for each event, only touched on the transport thread
+    private final PacketWriter writer; // for callers of send and sendReliably, under this
+    private final PacketWriter control; // for the transport thread
+    private final PacketReader reader;
+    private final List<ReliableChannel.Message> deliverable;
+    private volatile DatagramChannel channel;
+    private Selector selector;
+    private volatile boolean running;
+    private volatile boolean connected; // once the server accepted us
+    private volatile long lastSent;
+
+    public DatagramTransport(URI url, float simulatedLoss) {
+        if (url.getHost() == null || url.getPort() < 0) {
+            throw new IllegalArgumentException("Expected udp://host:port, not " + url);
+        }
+        server = new InetSocketAddress(url.getHost(), url.getPort());
+        this.simulatedLoss = simulatedLoss;
+        random = new Random();
+        listeners = new ConcurrentHashMap<String, Listener>();
+        reliable = new ReliableChannel();
+        sender = new ReliableChannel.Sender() {
+            @Override
+            public void send(byte[] datagram, int length) {
+                transmit(datagram, length);
+            }
+        };
+        sentSequences = new int[DatagramProtocol.UNRELIABLE_EVENTS.length];
+        receivedSequences = new int[DatagramProtocol.UNRELIABLE_EVENTS.length];
+        writer = new PacketWriter();
+        control = new PacketWriter();
+        reader = new PacketReader();
+        deliverable = new ArrayList<ReliableChannel.Message>();
+        running = false;
+        connected = false;
+        lastSent = 0;
+    }
+
+    @Override
+    public Transport on(String event, Listener listener) {
+        listeners.put(event, listener);
+        return this;
+    }
+
+    // opens the channel and starts the thread, which keeps asking the server to accept us for CONNECT_ATTEMPTS before it gives up with a DISCONNECT
+    @Override
+    public synchronized void connect() {
+        if (running) {
+            return;
+        }
+        try {
+            channel = DatagramChannel.open();
+            channel.configureBlocking(false);
+            channel.connect(server);
+            selector = Selector.open();
+            channel.register(selector, SelectionKey.OP_READ);
+        } catch (IOException e) {
+            close();
+            fire(DISCONNECT, null);
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runLoop();
+            }
+        }, "datagrams");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void send(String event, PacketWriter message) {
+        int index = DatagramProtocol.unreliableEvent(event);
+        if (index < 0) {
+            throw new IllegalArgumentException(event + " isn't one of the binary messages");
+        }
+        if (!connected) {
+            return;
+        }
+        DatagramProtocol.writeUnreliable(writer, index, ++sentSequences[index], message.getBuffer(), message.size()); // straight into the datagram, without a copy
+        transmit(writer.getBuffer(), writer.size());
+    }
+
+    // sent straight away if we are connected, otherwise the first resend after the server accepts us gets it there
+    @Override
+    public void sendReliably(String event) {
+        reliable.send(event, null, System.nanoTime(), sender);
+    }
+
+    // can be called from a listener, on the transport thread. the thread closes the channel and fires DISCONNECT once it notices
+    @Override
+    public synchronized void disconnect() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        if (connected) {
+            DatagramProtocol.writeControl(writer, DatagramProtocol.DISCONNECT);
+            transmit(writer.getBuffer(), writer.size());
+        }
+        selector.wakeup();
+    }
+
+    private void runLoop() {
+        ByteBuffer buffer = ByteBuffer.allocate(DatagramProtocol.MAX_DATAGRAM);
+        int attempts = 0;
+        long nextAttempt = 0;
+        long lastReceived = System.nanoTime();
+        try {
+            while (running) {
+                long now = System.nanoTime();
+                if (!connected) {
+                    if (attempts == DatagramProtocol.CONNECT_ATTEMPTS) {
+                        break;
+                    }
+                    if (now >= nextAttempt) {
+                        DatagramProtocol.writeControl(control, DatagramProtocol.CONNECT);
+                        transmit(control.getBuffer(), control.size());
+                        attempts++;
+                        nextAttempt = now + DatagramProtocol.CONNECT_RETRY_NANOS;
+                    }
+                } else {
+                    if (now - lastReceived > DatagramProtocol.TIMEOUT_NANOS) {
+                        break;
+                    }
+                    reliable.resend(now, sender);
+                    if (now - lastSent >= DatagramProtocol.KEEPALIVE_NANOS) {
+                        DatagramProtocol.writeAck(control, reliable.getAcknowledgement());
+                        transmit(control.getBuffer(), control.size());
+                    }
+                }
+                selector.select(DatagramProtocol.POLL_MILLIS);
+                selector.selectedKeys().clear();
+                while (running) {
+                    buffer.clear();
+                    try {
+                        if (channel.receive(buffer) == null) {
+                            break;
+                        }
+                    } catch (PortUnreachableException e) {
+                        continue; // nothing listening there yet, or any more. keep trying until the attempts or the timeout run out
+                    }
+                    lastReceived = System.nanoTime();
+                    if (simulatedLoss > 0 && random.nextFloat() < simulatedLoss) {
+                        continue;
+                    }
+                    receive(buffer.array(), buffer.position());
+                }
+            }
+        } catch (IOException e) {
+            // the channel failed, which ends the connection the same way a timeout does
+        } finally {
+            running = false;
+            connected = false;
+            close();
+            fire(DISCONNECT, null);
+        }
+    }
+
+    private void receive(byte[] datagram, int length) {
+        try {
+            reader.reset(datagram, length);
+            switch (reader.readByte()) {
+                case DatagramProtocol.ACCEPT:
+                    if (!connected) {
+                        connected = true;
+                        fire(CONNECT, null);
+                    }
+                    break;
+                case DatagramProtocol.DISCONNECT:
+                    running = false;
+                    break;
+                case DatagramProtocol.RELIABLE:
+                    reliable.received(reader.readVarInt(), reader.readString(), reader.readString(), deliverable);
+                    DatagramProtocol.writeAck(control, reliable.getAcknowledgement());
+                    transmit(control.getBuffer(), control.size());
+                    for (int i = 0; i < deliverable.size(); i++) {
+                        ReliableChannel.Message message = deliverable.get(i);
+                        try {
+                            fire(message.event, message.data.length() == 0 ? null : new JSONTokener(message.data).nextValue());
+                        } catch (JSONException e) {
+                            // a malformed event is dropped, like socket.io does with one it can't parse
+                        }
+                    }
+                    deliverable.clear();
+                    break;
+                case DatagramProtocol.ACK:
+                    reliable.acknowledged(reader.readVarInt());
+                    break;
+                case DatagramProtocol.UNRELIABLE:
+                    int event = reader.readByte();
+                    int sequence = reader.readVarInt();
+                    if (event >= receivedSequences.length || sequence <= receivedSequences[event]) {
+                        return; // overtaken by a newer one, so it is dropped rather than delivered late
+                    }
+                    receivedSequences[event] = sequence;
+                    fire(DatagramProtocol.UNRELIABLE_EVENTS[event], reader.readBytes(reader.remaining()));
+                    break;
+                default:
+                    break;
+            }
+        } catch (IllegalArgumentException e) {
+            // a truncated or malformed datagram only costs itself
+        }
+    }
+
+    private void fire(String event, Object data) {
+        Listener listener = listeners.get(event);
+        if (listener != null) {
+            listener.received(data);
+        }
+    }
+
+    // a datagram that fails to send is as good as lost, which every message already copes with
+    private void transmit(byte[] datagram, int length) {
+        DatagramChannel channel = this.channel;
+        if (channel == null) {
+            return;
+        }
+        lastSent = System.nanoTime();
+        if (simulatedLoss > 0 && random.nextFloat() < simulatedLoss) {
+            return;
+        }
+        try {
+            channel.write(ByteBuffer.wrap(datagram, 0, length));
+        } catch (IOException e) {
+            // lost
+        }
+    }
+
+    private void close() {
+        try {
+            if (selector != null) {
+                selector.close();
+            }
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            // nothing left to do with them
+        }
+    }
+}
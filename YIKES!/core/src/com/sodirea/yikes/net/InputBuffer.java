@@ -0,0 +1,119 @@
+package com.sodirea.yikes.net;
+
+// a fixed size queue of sequenced input commands, oldest first. the server queues each client's commands here until its tick uses them, and the client
+// keeps the commands the server hasn't acknowledged yet, along with where its own ball ended up after each one, to check its prediction against the server
+public class InputBuffer {
+
+    private final int[] sequences;
+    private final boolean[] jumps;
+    private final float[] tilts;
+    private final float[] x; // the predicted results, only filled in by the client
+    private final float[] y;
+    private final float[] velocityX;
+    private final float[] velocityY;
+    private int first; // ring index of the oldest command
+    private int size;
+
+    public InputBuffer(int capacity) {
+        sequences = new int[capacity];
+        jumps = new boolean[capacity];
+        tilts = new float[capacity];
+        x = new float[capacity];
+        y = new float[capacity];
+        velocityX = new float[capacity];
+        velocityY = new float[capacity];
+        first = 0;
+        size = 0;
+    }
+
+    // adds a command after the newest one. returns false, adding nothing, if the buffer is full
+    public boolean add(int sequence, boolean jump, float tilt) {
+        if (isFull()) {
+            return false;
+        }
+        int i = index(size);
+        sequences[i] = sequence;
+        jumps[i] = jump;
+        tilts[i] = tilt;
+        size++;
+        return true;
+    }
+
+    // forgets the count oldest commands
+    public void removeFirst(int count) {
+        count = Math.min(count, size);
+        first = index(count);
+        size -= count;
+    }
+
+    // the position of the command with the given sequence number, counting from the oldest, or -1 if it isn't here
+    public int indexOf(int sequence) {
+        for (int n = size - 1; n >= 0; n--) {
+            if (sequences[index(n)] == sequence) {
+                return n;
+            }
+        }
+        return -1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == sequences.length;
+    }
+
+    // the nth oldest command's fields
+    public int getSequence(int n) {
+        return sequences[index(n)];
+    }
+
+    public boolean getJump(int n) {
+        return jumps[index(n)];
+    }
+
+    public float getTilt(int n) {
+        return tilts[index(n)];
+    }
+
+    // records where the ball was after the nth oldest command ran
+    public void setResult(int n, float x, float y, float velocityX, float velocityY) {
+        int i = index(n);
+        this.x[i] = x;
+        this.y[i] = y;
+        this.velocityX[i] = velocityX;
+        this.velocityY[i] = velocityY;
+    }
+
+    public float getX(int n) {
+        return x[index(n)];
+    }
+
+    public float getY(int n) {
+        return y[index(n)];
+    }
+
+    public float getVelocityX(int n) {
+        return velocityX[index(n)];
+    }
+
+    public float getVelocityY(int n) {
+        return velocityY[index(n)];
+    }
+
+    // shifts every recorded result, for when the ball itself was just shifted by the same amount
+    public void offsetResults(float dx, float dy, float dvx, float dvy) {
+        for (int n = 0; n < size; n++) {
+            int i = index(n);
+            x[i] += dx;
+            y[i] += dy;
+            velocityX[i] += dvx;
+            velocityY[i] += dvy;
+        }
+    }
+
+    private int index(int n) {
+        return (first + n) % sequences.length;
+    }
+}
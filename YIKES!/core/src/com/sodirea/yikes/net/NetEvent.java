@@ -0,0 +1,30 @@
+package com.sodirea.yikes.net;
+
+// one message from the server, handed from the socket.io event thread to the render thread through a NetEventQueue.
+// the queue owns a fixed set of these and reuses them, so only the fields that matter for the type are filled in and the rest keep whatever they held before
+public class NetEvent {
+
+    public static final int CONNECTED = 0; // id, the room the server put us in
+    public static final int NEW_PLAYER = 1; // id, number
+    public static final int PLAYER_DISCONNECTED = 2; // id
+    public static final int PLAYER_STATE = 3; // number, x, y, velocityX, velocityY, origin
+    public static final int LEVEL = 4; // seed
+    public static final int START_CAMERA = 5; // number (the server step the camera starts scrolling on)
+    public static final int RESET_STATE = 6;
+    public static final int OWN_STATE = 7; // number (the sequence of the last input the server ran), x, y, velocityX, velocityY, origin
+    public static final int PONG = 8; // number (the ping's id), serverTime
+
+    public int type;
+    public float time; // when the message arrived, in the receiver's own clock
+    public String id;
+    public int number;
+    public long seed;
+    public double serverTime; // seconds on the server's clock
+    public float x;
+    public float y;
+    public float velocityX;
+    public float velocityY;
+    public int origin; // the server's origin row that y is measured from, see Protocol
+
+    long position; // the queue position this event was claimed at
+}
@@ -0,0 +1,167 @@
+package com.sodirea.yikes.net;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// a bounded queue of preallocated NetEvents, filled by any number of network threads and drained by a single thread, without locks or allocation.
+// a producer claims an event, fills it in and publishes it. every claimed event has to be published, since draining stops at the first one that isn't.
+// when the queue is full, claim() drops the message and counts it rather than making the network thread wait for the next frame. that suits frequent
+// messages a later one replaces, but not one-off ones, so claimControl() never drops: the last reserved slots are kept for it, and past those it allocates
+// an event of its own, which waits in an overflow behind everything already queued. while anything is in the overflow, claim() drops, so order is kept
+public class NetEventQueue {
+
+    private static final long OVERFLOW = -1; // the position of an event claimed from the overflow
+
+    public interface Handler {
+        void handle(NetEvent event);
+    }
+
+    private final NetEvent[] events;
+    private final AtomicLongArray sequences; // for each slot, the position it can next be claimed at, or that position + 1 once its event is published
+    private final int mask;
+    private final AtomicLong tail; // the next position to claim
+    private final AtomicLong head; // the next position to drain. only written by the draining thread
+    private final AtomicLong dropped;
+    private final int reserved; // how many of the events only claimControl() can take
+    private final ConcurrentLinkedQueue<NetEvent> overflow; // claimControl()'s events once the queue is full, in order
+    private final AtomicInteger overflowing; // how many events have been claimed from the overflow and not drained yet
+    private int peakDepth; // only touched by the draining thread
+
+    // capacity has to be a power of two
+    public NetEventQueue(int capacity) {
+        this(capacity, 0);
+    }
+
+    // keeps the last reserved events of capacity for claimControl()
+    public NetEventQueue(int capacity, int reserved) {
+        if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+            throw new IllegalArgumentException("capacity has to be a power of two: " + capacity);
+        }
+        if (reserved < 0 || reserved >= capacity) {
+            throw new IllegalArgumentException("reserved has to leave room for other events: " + reserved);
+        }
+        events = new NetEvent[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            events[i] = new NetEvent();
+            sequences.set(i, i);
+        }
+        mask = capacity - 1;
+        tail = new AtomicLong(0);
+        head = new AtomicLong(0);
+        dropped = new AtomicLong(0);
+        this.reserved = reserved;
+        overflow = new ConcurrentLinkedQueue<NetEvent>();
+        overflowing = new AtomicInteger(0);
+        peakDepth = 0;
+    }
+
+    // reserves the next event for the calling thread to fill in, or returns null if the queue is full apart from its reserved events
+    public NetEvent claim() {
+        if (overflowing.get() > 0) {
+            dropped.incrementAndGet();
+            return null;
+        }
+        NetEvent event = claim(reserved);
+        if (event == null) {
+            dropped.incrementAndGet();
+        }
+        return event;
+    }
+
+    // reserves the next event for a message that can't be dropped. never returns null, and only allocates once every event, reserved ones included, is taken
+    public NetEvent claimControl() {
+        if (overflowing.get() == 0) {
+            NetEvent event = claim(0);
+            if (event != null) {
+                return event;
+            }
+        }
+        overflowing.incrementAndGet();
+        NetEvent event = new NetEvent();
+        event.position = OVERFLOW;
+        return event;
+    }
+
+    // claims an event as long as more than keepFree are left, otherwise returns null
+    private NetEvent claim(int keepFree) {
+        while (true) {
+            long position = tail.get();
+            int slot = (int) (position & mask);
+            long free = sequences.get(slot) - position;
+            if (free == 0) {
+                if (keepFree > 0 && position - head.get() >= events.length - keepFree) {
+                    return null;
+                }
+                if (tail.compareAndSet(position, position + 1)) {
+                    NetEvent event = events[slot];
+                    event.position = position;
+                    return event;
+                }
+            } else if (free < 0) {
+                return null; // the slot still holds an event from one lap ago that hasn't been drained
+            }
+            // otherwise another thread claimed this position first, so try the next one
+        }
+    }
+
+    // hands a claimed and filled in event over to the draining thread
+    public void publish(NetEvent event) {
+        if (event.position == OVERFLOW) {
+            overflow.add(event);
+            return;
+        }
+        sequences.lazySet((int) (event.position & mask), event.position + 1);
+    }
+
+    // passes every published event to handler in order, then makes them available to claim again. events published while draining wait for the next call,
+    // so a flood of messages can't stall the caller. returns how many events were handled
+    public int drain(Handler handler) {
+        long position = head.get();
+        long end = tail.get();
+        peakDepth = Math.max(peakDepth, (int) (end - position));
+        int handled = 0;
+        while (position < end) {
+            int slot = (int) (position & mask);
+            if (sequences.get(slot) != position + 1) {
+                break; // claimed but not published yet
+            }
+            NetEvent event = events[slot];
+            handler.handle(event);
+            event.id = null; // don't keep strings alive until the slot comes around again
+            sequences.lazySet(slot, position + mask + 1);
+            position++;
+            handled++;
+        }
+        head.lazySet(position);
+        if (position == end) { // the overflow only comes after everything in the queue
+            for (int n = overflowing.get(); n > 0; n--) {
+                NetEvent event = overflow.poll();
+                if (event == null) {
+                    break; // claimed but not published yet
+                }
+                handler.handle(event);
+                overflowing.decrementAndGet();
+                handled++;
+            }
+        }
+        return handled;
+    }
+
+    // how many events are waiting to be drained, including claimed ones that aren't published yet
+    public int getDepth() {
+        return (int) (tail.get() - head.get()) + overflowing.get();
+    }
+
+    // the most events ever waiting at the start of a drain
+    public int getPeakDepth() {
+        return peakDepth;
+    }
+
+    // how many messages were dropped because the queue was full
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
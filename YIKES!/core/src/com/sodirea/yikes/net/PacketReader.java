@@ -0,0 +1,112 @@
+package com.sodirea.yikes.net;
+
+// reads binary messages written by PacketWriter straight out of the received byte array, without copying it or creating objects
+public class PacketReader {
+
+    private byte[] buffer;
+    private int position;
+    private int limit;
+
+    public PacketReader() {
+        buffer = new byte[0];
+        position = 0;
+        limit = 0;
+    }
+
+    // starts reading a new message
+    public PacketReader reset(byte[] message) {
+        return reset(message, message.length);
+    }
+
+    // the same for a message that only fills the first length bytes of a reused buffer
+    public PacketReader reset(byte[] message, int length) {
+        buffer = message;
+        position = 0;
+        limit = length;
+        return this;
+    }
+
+    public int readByte() {
+        check(1);
+        return buffer[position++] & 0xFF;
+    }
+
+    public short readShort() {
+        check(2);
+        int value = (buffer[position] & 0xFF) << 8 | (buffer[position + 1] & 0xFF);
+        position += 2;
+        return (short) value;
+    }
+
+    public int readVarInt() {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (shift > 28) {
+                throw new IllegalArgumentException("Malformed varint at " + position);
+            }
+            b = readByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    public long readVarLong() {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (shift > 63) {
+                throw new IllegalArgumentException("Malformed varlong at " + position);
+            }
+            b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    public int readSignedVarInt() {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // a copy of the next length bytes, for handing on a message nested in this one
+    public byte[] readBytes(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative length " + length);
+        }
+        check(length);
+        byte[] bytes = new byte[length];
+        System.arraycopy(buffer, position, bytes, 0, length);
+        position += length;
+        return bytes;
+    }
+
+    public String readString() {
+        int length = readVarInt();
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative length " + length);
+        }
+        check(length);
+        String value = new String(buffer, position, length, PacketWriter.UTF_8);
+        position += length;
+        return value;
+    }
+
+    public int remaining() {
+        return limit - position;
+    }
+
+    public boolean hasRemaining() {
+        return position < limit;
+    }
+
+    private void check(int bytes) {
+        if (position + bytes > limit) {
+            throw new IllegalArgumentException("Message ended after " + limit + " bytes");
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.sodirea.yikes.net;
+
+import java.nio.charset.Charset;
+
+// writes binary messages into a growable byte array that is reused from message to message. see Protocol for the layouts
+public class PacketWriter {
+
+    public static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private byte[] buffer;
+    private int size;
+
+    public PacketWriter() {
+        this(64);
+    }
+
+    public PacketWriter(int capacity) {
+        buffer = new byte[capacity];
+        size = 0;
+    }
+
+    // starts a new message, keeping the buffer
+    public PacketWriter reset() {
+        size = 0;
+        return this;
+    }
+
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) value;
+    }
+
+    // big endian, like DataOutputStream
+    public void writeShort(int value) {
+        ensureCapacity(2);
+        buffer[size++] = (byte) (value >> 8);
+        buffer[size++] = (byte) value;
+    }
+
+    // unsigned LEB128: 7 bits per byte, high bit set on every byte but the last. 0-127 take a single byte
+    public void writeVarInt(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    // the same for longs, up to 10 bytes
+    public void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    // zigzag encodes the sign into the lowest bit first, so small negative numbers stay short too
+    public void writeSignedVarInt(int value) {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    public void writeBytes(byte[] bytes, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, buffer, size, length);
+        size += length;
+    }
+
+    // the UTF-8 length as a varint, then the UTF-8 bytes
+    public void writeString(String value) {
+        byte[] bytes = value.getBytes(UTF_8);
+        writeVarInt(bytes.length);
+        writeBytes(bytes, 0, bytes.length);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // a copy of the message written so far. socket.io holds onto what it is given until it is sent, so the buffer itself can't be handed out
+    public byte[] toByteArray() {
+        byte[] message = new byte[size];
+        System.arraycopy(buffer, 0, message, 0, size);
+        return message;
+    }
+
+    // the buffer being written into, valid up to size(). only for handing the message to something that copies it straight away, like a DatagramChannel
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (size + bytes > buffer.length) {
+            byte[] grown = new byte[Math.max(buffer.length * 2, size + bytes)];
+            System.arraycopy(buffer, 0, grown, 0, size);
+            buffer = grown;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.sodirea.yikes.net;
+
+// the binary layout of the frequent multiplayer messages, shared by the client and the server. rare messages (joining, leaving) stay JSON.
+// these are the messages a Transport may drop, see DatagramProtocol for how they travel over UDP.
+// every binary message starts with the protocol version byte, so a client and server built from different versions drop each other's messages instead of misreading them.
+//
+//   input (client to server):              acknowledged snapshot, first sequence, count, then count times: flags (bit 0 = jump), tilt
+//   worldState (server to client):         snapshot, baseline, own number, sequence + 1, origin, then removed count, then removed count times: number,
+//                                          then changed count, then changed count times: number, fields, then each field in fields
+//   clockPing (client to server):          id
+//   clockPong (server to client):          id, server time
+//
+// input carries one command per fixed step, numbered consecutively from first sequence, along with the id of the newest worldState snapshot the client has (0 for none).
+// the client repeats every command the server hasn't acknowledged yet (up to MultiplayerState.INPUT_REDUNDANCY), so one lost message loses no commands, and the server
+// skips the ones it has queued before.
+// worldState is the client's view of the room: the balls the server chose to send them (their own always, dead ones never, see Room.broadcastWorld), as differences
+// from the baseline snapshot, which is the newest one the client acknowledged, or 0 when the server no longer has that one (or never got an acknowledgement) and sends
+// everything. snapshot ids count up separately for every client, and how often a client gets one depends on their connection, see SendRate. only balls that differ from the baseline are written, and of those only the fields
+// that differ: fields is a bit set of FIELD_X, FIELD_Y, FIELD_VELOCITY_X and FIELD_VELOCITY_Y, and each field is the zigzag varint difference from the baseline's value,
+// or from 0 for a ball the baseline doesn't have. removed lists the balls in the baseline that have since left. own number is the client's own ball, and sequence the last
+// of their commands the server ran, -1 until it has run one. origin is how many rows the server's course has been rebased down (see Course.rebase), and every y in
+// the snapshot is measured from there: its height in the level is y + origin * PLATFORM_INTERVALS. the client's course rebases on its own, so it converts
+// with the difference between the two origins. a ball's y changes by a whole rebase when origin does, which costs its FIELD_Y once.
+// clockPong answers the clockPing with the same id straight away, with the server's clock as a varlong in microseconds since the room opened. the room runs its step n at
+// n * STEP_INTERVAL on that clock, which is what lets clients agree on when a step happens, see ClockSync.
+// number is the small per room player number announced in getPlayers and newPlayer, instead of the 36 character session id.
+// x is in 1/16 pixels and y in 1/8 pixels, velocities in 1/100 meters per second and tilt is a short in 1/100 of the accelerometer's units. ids, sequences, counts and numbers
+// are varints. a ball that moved a little since the baseline costs 4 or 5 bytes, a resting one nothing.
+// platforms and boulders are never sent, every client works them out from the room's seed, see LevelGenerator
+public final class Protocol {
+
+    public static final int VERSION = 5;
+
+    public static final float X_SCALE = 16;
+    public static final float Y_SCALE = 8;
+    public static final float VELOCITY_SCALE = 100;
+    public static final float TILT_SCALE = 100;
+    public static final double SERVER_TIME_SCALE = 1000000; // server time units per second
+
+    public static final int FLAG_JUMP = 1;
+
+    public static final int FIELD_X = 1;
+    public static final int FIELD_Y = 2;
+    public static final int FIELD_VELOCITY_X = 4;
+    public static final int FIELD_VELOCITY_Y = 8;
+
+    private Protocol() {
+    }
+
+    // starts a message in the given writer, returning it for convenience
+    public static PacketWriter begin(PacketWriter out) {
+        out.reset();
+        out.writeByte(VERSION);
+        return out;
+    }
+
+    // starts reading the message, returning false if it came from a different protocol version
+    public static boolean begin(PacketReader in, byte[] message) {
+        in.reset(message);
+        return in.hasRemaining() && in.readByte() == VERSION;
+    }
+
+    public static void writeTilt(PacketWriter out, float tilt) {
+        out.writeShort(clampShort(Math.round(tilt * TILT_SCALE)));
+    }
+
+    public static float readTilt(PacketReader in) {
+        return in.readShort() / TILT_SCALE;
+    }
+
+    // the values written for x, y and velocities, for telling whether something changed as far as the other end can see
+    public static int quantizeX(float x) {
+        return clampShort(Math.round(x * X_SCALE));
+    }
+
+    public static int quantizeY(float y) {
+        return Math.round(y * Y_SCALE);
+    }
+
+    public static int quantizeVelocity(float velocity) {
+        return clampShort(Math.round(velocity * VELOCITY_SCALE));
+    }
+
+    public static float dequantizeX(int x) {
+        return x / X_SCALE;
+    }
+
+    public static float dequantizeY(int y) {
+        return y / Y_SCALE;
+    }
+
+    public static float dequantizeVelocity(int velocity) {
+        return velocity / VELOCITY_SCALE;
+    }
+
+    // the removed and changed sections of a worldState: current as differences from baseline, which may be null to send everything
+    public static void writeSnapshot(PacketWriter out, WorldSnapshot current, WorldSnapshot baseline) {
+        int removed = 0;
+        for (int i = 0; baseline != null && i < baseline.size(); i++) {
+            if (current.indexOf(baseline.getNumber(i)) < 0) {
+                removed++;
+            }
+        }
+        out.writeVarInt(removed);
+        for (int i = 0; removed > 0 && i < baseline.size(); i++) {
+            if (current.indexOf(baseline.getNumber(i)) < 0) {
+                out.writeVarInt(baseline.getNumber(i));
+            }
+        }
+        int changed = 0;
+        for (int i = 0; i < current.size(); i++) {
+            if (!current.sameAs(i, baseline)) {
+                changed++;
+            }
+        }
+        out.writeVarInt(changed);
+        for (int i = 0; changed > 0 && i < current.size(); i++) {
+            if (current.sameAs(i, baseline)) {
+                continue;
+            }
+            int j = baseline == null ? -1 : baseline.indexOf(current.getNumber(i));
+            int dx = current.getX(i) - (j < 0 ? 0 : baseline.getX(j));
+            int dy = current.getY(i) - (j < 0 ? 0 : baseline.getY(j));
+            int dvx = current.getVelocityX(i) - (j < 0 ? 0 : baseline.getVelocityX(j));
+            int dvy = current.getVelocityY(i) - (j < 0 ? 0 : baseline.getVelocityY(j));
+            int fields = (dx != 0 ? FIELD_X : 0) | (dy != 0 ? FIELD_Y : 0) | (dvx != 0 ? FIELD_VELOCITY_X : 0) | (dvy != 0 ? FIELD_VELOCITY_Y : 0);
+            out.writeVarInt(current.getNumber(i));
+            out.writeByte(fields);
+            if ((fields & FIELD_X) != 0) {
+                out.writeSignedVarInt(dx);
+            }
+            if ((fields & FIELD_Y) != 0) {
+                out.writeSignedVarInt(dy);
+            }
+            if ((fields & FIELD_VELOCITY_X) != 0) {
+                out.writeSignedVarInt(dvx);
+            }
+            if ((fields & FIELD_VELOCITY_Y) != 0) {
+                out.writeSignedVarInt(dvy);
+            }
+        }
+    }
+
+    // reads what writeSnapshot wrote into out, starting from a copy of baseline (null for none). out must not be baseline itself
+    public static void readSnapshot(PacketReader in, WorldSnapshot baseline, WorldSnapshot out, int id) {
+        out.set(baseline);
+        out.id = id;
+        for (int removed = in.readVarInt(); removed > 0; removed--) {
+            out.remove(in.readVarInt());
+        }
+        for (int changed = in.readVarInt(); changed > 0; changed--) {
+            int number = in.readVarInt();
+            int fields = in.readByte();
+            int i = out.indexOf(number);
+            int x = i < 0 ? 0 : out.getX(i);
+            int y = i < 0 ? 0 : out.getY(i);
+            int velocityX = i < 0 ? 0 : out.getVelocityX(i);
+            int velocityY = i < 0 ? 0 : out.getVelocityY(i);
+            if ((fields & FIELD_X) != 0) {
+                x += in.readSignedVarInt();
+            }
+            if ((fields & FIELD_Y) != 0) {
+                y += in.readSignedVarInt();
+            }
+            if ((fields & FIELD_VELOCITY_X) != 0) {
+                velocityX += in.readSignedVarInt();
+            }
+            if ((fields & FIELD_VELOCITY_Y) != 0) {
+                velocityY += in.readSignedVarInt();
+            }
+            out.put(number, x, y, velocityX, velocityY);
+        }
+    }
+
+    public static void writeInput(PacketWriter out, boolean jump, float tilt) {
+        out.writeByte(jump ? FLAG_JUMP : 0);
+        writeTilt(out, tilt);
+    }
+
+    // out of range values are pinned to the nearest end rather than wrapping around to the other side
+    private static int clampShort(int value) {
+        return Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+    }
+}
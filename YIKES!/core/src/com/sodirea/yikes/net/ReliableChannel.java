@@ -0,0 +1,129 @@
+package com.sodirea.yikes.net;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+// the reliable half of a datagram connection, see DatagramProtocol. numbers outgoing RELIABLE messages and keeps each one until the other side acknowledges it,
+// sending it again every RESEND_NANOS, and puts incoming ones back in order, holding any that arrive ahead of one that was lost. synchronized, since messages
+// are sent from game threads while the transport's own thread receives and resends. when WINDOW messages are already waiting, more are queued behind them
+// and sent as acknowledgements make room, so a long outage costs memory for what is said during it, until the transport times out, rather than an exception
+// on whoever sent them
+public class ReliableChannel {
+
+    public static final int WINDOW = 64; // how many messages can be in flight unacknowledged, or held for one missing before them, at once
+    public static final long RESEND_NANOS = 100000000L; // longer than the round trip to anyone close enough to play
+
+    public interface Sender {
+        void send(byte[] datagram, int length);
+    }
+
+    // one received message, data being its JSON, or empty
+    public static class Message {
+        public final int sequence;
+        public final String event;
+        public final String data;
+
+        public Message(int sequence, String event, String data) {
+            this.sequence = sequence;
+            this.event = event;
+            this.data = data;
+        }
+    }
+
+    private final PacketWriter writer;
+    private final byte[][] unacknowledged; // encoded datagrams, by sequence % WINDOW
+    private final long[] sentAt;
+    private int nextSequence;
+    private int acknowledged; // the newest sequence the other side has, along with every one before it
+    private final Message[] early; // received ahead of the next one to deliver, by sequence % WINDOW
+    private int delivered; // the newest sequence delivered in order
+    private final ArrayDeque<Message> overflow; // sent while the window was full, oldest first, not numbered yet
+
+    public ReliableChannel() {
+        writer = new PacketWriter();
+        unacknowledged = new byte[WINDOW][];
+        sentAt = new long[WINDOW];
+        nextSequence = 1;
+        acknowledged = 0;
+        early = new Message[WINDOW];
+        delivered = 0;
+        overflow = new ArrayDeque<Message>();
+    }
+
+    // sends event with its JSON data (null for none) and keeps it for resending. if WINDOW messages are already unacknowledged, which only happens when the
+    // other side has stopped answering for a while, it waits in the overflow until resend finds room for it
+    public synchronized void send(String event, String data, long now, Sender sender) {
+        if (!overflow.isEmpty() || isWindowFull()) {
+            overflow.add(new Message(0, event, data));
+            return;
+        }
+        transmit(event, data, now, sender);
+    }
+
+    private boolean isWindowFull() {
+        return nextSequence - acknowledged > WINDOW;
+    }
+
+    private void transmit(String event, String data, long now, Sender sender) {
+        int sequence = nextSequence++;
+        writer.reset().writeByte(DatagramProtocol.RELIABLE);
+        writer.writeVarInt(sequence);
+        writer.writeString(event);
+        writer.writeString(data == null ? "" : data);
+        DatagramProtocol.checkSize(writer);
+        byte[] datagram = writer.toByteArray();
+        unacknowledged[sequence % WINDOW] = datagram;
+        sentAt[sequence % WINDOW] = now;
+        sender.send(datagram, datagram.length);
+    }
+
+    public synchronized void acknowledged(int sequence) {
+        if (sequence <= acknowledged || sequence >= nextSequence) {
+            return;
+        }
+        for (int n = acknowledged + 1; n <= sequence; n++) {
+            unacknowledged[n % WINDOW] = null;
+        }
+        acknowledged = sequence;
+    }
+
+    // sends again whatever has gone unacknowledged for RESEND_NANOS, then as much of the overflow as the window has room for
+    public synchronized void resend(long now, Sender sender) {
+        for (int sequence = acknowledged + 1; sequence < nextSequence; sequence++) {
+            int slot = sequence % WINDOW;
+            if (now - sentAt[slot] >= RESEND_NANOS) {
+                sentAt[slot] = now;
+                sender.send(unacknowledged[slot], unacknowledged[slot].length);
+            }
+        }
+        while (!overflow.isEmpty() && !isWindowFull()) {
+            Message message = overflow.poll();
+            transmit(message.event, message.data, now, sender);
+        }
+    }
+
+    // how many messages are waiting for room in the window
+    public synchronized int getOverflow() {
+        return overflow.size();
+    }
+
+    // takes in a received message and adds every message that can now be delivered in order to deliverable. duplicates, and messages too far ahead to hold,
+    // are ignored: the first were delivered already and the others will be resent. either way the sender needs getAcknowledgement() sent back
+    public synchronized void received(int sequence, String event, String data, List<Message> deliverable) {
+        if (sequence <= delivered || sequence > delivered + WINDOW) {
+            return;
+        }
+        early[sequence % WINDOW] = new Message(sequence, event, data);
+        Message next;
+        while ((next = early[(delivered + 1) % WINDOW]) != null && next.sequence == delivered + 1) {
+            early[next.sequence % WINDOW] = null;
+            deliverable.add(next);
+            delivered++;
+        }
+    }
+
+    // the newest sequence received along with every one before it, which is what ACK carries
+    public synchronized int getAcknowledgement() {
+        return delivered;
+    }
+}
@@ -0,0 +1,93 @@
+package com.sodirea.yikes.net;
+
+import com.badlogic.gdx.math.Vector2;
+
+// the last few positions and velocities received for one remote ball, each stamped with the time it arrived. the view draws the ball a little in the past,
+// between two snapshots it already has, so uneven packet timing doesn't show as jitter
+public class SnapshotBuffer {
+
+    public static final int CAPACITY = 16; // 0.8 seconds of updates at 20 a second, far more than any sensible interpolation delay needs
+    public static final float MAX_EXTRAPOLATION = 0.2f; // how long to keep moving a ball along its last velocity when updates stop, before holding it still
+
+    private final float velocityScale; // rendering units per second for one unit of the received velocity
+    private final float[] times;
+    private final float[] x;
+    private final float[] y;
+    private final float[] velocityX;
+    private final float[] velocityY;
+    private int oldest; // ring index of the oldest snapshot
+    private int size;
+
+    public SnapshotBuffer(float velocityScale) {
+        this.velocityScale = velocityScale;
+        times = new float[CAPACITY];
+        x = new float[CAPACITY];
+        y = new float[CAPACITY];
+        velocityX = new float[CAPACITY];
+        velocityY = new float[CAPACITY];
+        oldest = 0;
+        size = 0;
+    }
+
+    // adds a snapshot received at the given time, overwriting the oldest one once the buffer is full. snapshots older than the newest one are dropped
+    public void add(float time, float x, float y, float velocityX, float velocityY) {
+        int i;
+        if (size > 0 && time <= times[index(size - 1)]) {
+            if (time < times[index(size - 1)]) {
+                return;
+            }
+            i = index(size - 1); // arrived at the same time as the newest one, so it replaces it
+        } else if (size < CAPACITY) {
+            i = index(size);
+            size++;
+        } else {
+            i = oldest;
+            oldest = (oldest + 1) % CAPACITY;
+        }
+        times[i] = time;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.velocityX[i] = velocityX;
+        this.velocityY[i] = velocityY;
+    }
+
+    // puts where the ball was at the given time into out, interpolating between the two snapshots around it. past the newest snapshot, the ball carries on
+    // along its last velocity for up to MAX_EXTRAPOLATION seconds. returns false, leaving out alone, if nothing has been received yet
+    public boolean sample(float time, Vector2 out) {
+        if (size == 0) {
+            return false;
+        }
+        int newest = index(size - 1);
+        if (time >= times[newest]) {
+            float ahead = Math.min(time - times[newest], MAX_EXTRAPOLATION);
+            out.set(x[newest] + velocityX[newest] * velocityScale * ahead, y[newest] + velocityY[newest] * velocityScale * ahead);
+            return true;
+        }
+        if (time <= times[oldest]) {
+            out.set(x[oldest], y[oldest]);
+            return true;
+        }
+        // walk back from the newest snapshot, since the sampled time is normally only a couple of snapshots behind it
+        int after = newest;
+        int before = index(size - 2);
+        for (int n = size - 2; n > 0 && times[before] > time; n--) {
+            after = before;
+            before = index(n - 1);
+        }
+        float progress = (time - times[before]) / (times[after] - times[before]);
+        out.set(x[before] + (x[after] - x[before]) * progress, y[before] + (y[after] - y[before]) * progress);
+        return true;
+    }
+
+    // shifts every snapshot's y, for when the view's own origin moved by dy, see Course.rebase
+    public void offsetY(float dy) {
+        for (int n = 0; n < size; n++) {
+            y[index(n)] += dy;
+        }
+    }
+
+    // ring index of the nth oldest snapshot
+    private int index(int n) {
+        return (oldest + n) % CAPACITY;
+    }
+}
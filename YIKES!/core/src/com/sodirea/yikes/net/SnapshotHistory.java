@@ -0,0 +1,37 @@
+package com.sodirea.yikes.net;
+
+// the last few world snapshots, as a ring of preallocated WorldSnapshots that are reused oldest first
+public class SnapshotHistory {
+
+    private final WorldSnapshot[] snapshots;
+    private int next; // the slot the next snapshot goes in, which holds the oldest one
+
+    public SnapshotHistory(int capacity, int playersPerSnapshot) {
+        snapshots = new WorldSnapshot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            snapshots[i] = new WorldSnapshot(playersPerSnapshot);
+        }
+        next = 0;
+    }
+
+    // an empty snapshot with the given id, in place of the oldest one
+    public WorldSnapshot add(int id) {
+        WorldSnapshot snapshot = snapshots[next];
+        next = (next + 1) % snapshots.length;
+        snapshot.reset(id);
+        return snapshot;
+    }
+
+    // the snapshot with the given id, or null if it was never added or has since been overwritten
+    public WorldSnapshot get(int id) {
+        if (id == 0) {
+            return null;
+        }
+        for (WorldSnapshot snapshot : snapshots) {
+            if (snapshot.id == id) {
+                return snapshot;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,49 @@
+package com.sodirea.yikes.net;
+
+import java.net.URISyntaxException;
+
+import io.socket.client.IO;
+import io.socket.client.Socket;
+import io.socket.emitter.Emitter;
+
+// everything over socket.io, which is to say one TCP connection (a WebSocket, or HTTP long polling until that is up), so nothing is ever dropped, but a lost
+// packet holds up every message behind it until it has been resent
+public class SocketIOTransport implements Transport {
+
+    private final Socket socket;
+
+    public SocketIOTransport(String url) throws URISyntaxException {
+        socket = IO.socket(url);
+    }
+
+    @Override
+    public Transport on(String event, final Listener listener) {
+        socket.on(event, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                listener.received(args.length > 0 ? args[0] : null);
+            }
+        });
+        return this;
+    }
+
+    @Override
+    public void connect() {
+        socket.connect();
+    }
+
+    @Override
+    public void send(String event, PacketWriter message) {
+        socket.emit(event, message.toByteArray());
+    }
+
+    @Override
+    public void sendReliably(String event) {
+        socket.emit(event);
+    }
+
+    @Override
+    public void disconnect() {
+        socket.disconnect();
+    }
+}
@@ -0,0 +1,28 @@
+package com.sodirea.yikes.net;
+
+// how MultiplayerState talks to the server, whatever carries it. the rare events (joining, players coming and going, the camera starting, resetState) always arrive,
+// in order, with their JSON data. the frequent binary messages of Protocol (input, worldState, clockPing, clockPong) may be dropped by a transport that can, so one
+// lost packet doesn't hold up every one after it. SocketIOTransport runs over socket.io and DatagramTransport over UDP
+public interface Transport {
+
+    String CONNECT = "connect"; // when the server is reached, as socket.io names it
+    String DISCONNECT = "disconnect";
+
+    interface Listener {
+        // data is a JSONObject or JSONArray for JSON events, a byte[] for binary ones and null for events without any. called on the transport's own thread
+        void received(Object data);
+    }
+
+    // listens for event, before connect()
+    Transport on(String event, Listener listener);
+
+    void connect();
+
+    // a frequent binary message, which may be dropped. message is only read during the call, so the caller can reuse its writer straight after
+    void send(String event, PacketWriter message);
+
+    // a rare event without data, which is never dropped
+    void sendReliably(String event);
+
+    void disconnect();
+}
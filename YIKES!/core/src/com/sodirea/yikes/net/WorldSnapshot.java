@@ -0,0 +1,126 @@
+package com.sodirea.yikes.net;
+
+import java.util.Arrays;
+
+// the balls in one worldState, keyed by player number and quantized exactly as worldState sends them. the server keeps the last few it sent each client
+// and the client the last few it received, so a worldState only has to carry the differences from one the client has acknowledged, see Protocol
+public class WorldSnapshot {
+
+    public int id; // counts up from 1 with each worldState, 0 stands for no snapshot
+    public int origin; // the server's origin row every y is measured from, see Protocol
+    private int size;
+    private int[] numbers;
+    private int[] x;
+    private int[] y;
+    private int[] velocityX;
+    private int[] velocityY;
+
+    public WorldSnapshot(int capacity) {
+        id = 0;
+        origin = 0;
+        size = 0;
+        numbers = new int[capacity];
+        x = new int[capacity];
+        y = new int[capacity];
+        velocityX = new int[capacity];
+        velocityY = new int[capacity];
+    }
+
+    // empties it to hold a new snapshot
+    public void reset(int id) {
+        this.id = id;
+        size = 0;
+    }
+
+    // makes this a copy of other, or an empty snapshot if other is null
+    public void set(WorldSnapshot other) {
+        if (other == null) {
+            reset(0);
+            return;
+        }
+        reset(other.id);
+        origin = other.origin;
+        for (int i = 0; i < other.size; i++) {
+            put(other.numbers[i], other.x[i], other.y[i], other.velocityX[i], other.velocityY[i]);
+        }
+    }
+
+    // adds the ball, or overwrites it if the snapshot already has one with that number
+    public void put(int number, int x, int y, int velocityX, int velocityY) {
+        int i = indexOf(number);
+        if (i < 0) {
+            if (size == numbers.length) {
+                grow();
+            }
+            i = size++;
+            numbers[i] = number;
+        }
+        this.x[i] = x;
+        this.y[i] = y;
+        this.velocityX[i] = velocityX;
+        this.velocityY[i] = velocityY;
+    }
+
+    public void remove(int number) {
+        int i = indexOf(number);
+        if (i < 0) {
+            return;
+        }
+        size--;
+        numbers[i] = numbers[size];
+        x[i] = x[size];
+        y[i] = y[size];
+        velocityX[i] = velocityX[size];
+        velocityY[i] = velocityY[size];
+    }
+
+    // where the ball with the given number is, or -1 if it isn't in the snapshot. rooms are small enough that a scan beats a map
+    public int indexOf(int number) {
+        for (int i = 0; i < size; i++) {
+            if (numbers[i] == number) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // whether the ith ball is exactly the same in other, including when other is null and so has no balls at all
+    public boolean sameAs(int i, WorldSnapshot other) {
+        int j = other == null ? -1 : other.indexOf(numbers[i]);
+        return j >= 0 && x[i] == other.x[j] && y[i] == other.y[j] && velocityX[i] == other.velocityX[j] && velocityY[i] == other.velocityY[j];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // the ith ball's fields, in the order they were put in
+    public int getNumber(int i) {
+        return numbers[i];
+    }
+
+    public int getX(int i) {
+        return x[i];
+    }
+
+    public int getY(int i) {
+        return y[i];
+    }
+
+    public int getVelocityX(int i) {
+        return velocityX[i];
+    }
+
+    public int getVelocityY(int i) {
+        return velocityY[i];
+    }
+
+    private void grow() {
+        int capacity = Math.max(1, numbers.length * 2);
+        numbers = Arrays.copyOf(numbers, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        velocityX = Arrays.copyOf(velocityX, capacity);
+        velocityY = Arrays.copyOf(velocityY, capacity);
+    }
+}
@@ -0,0 +1,146 @@
+package com.sodirea.yikes.settings;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Preferences;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectMap;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+// a typed cache in front of the game's Preferences. reads come from memory, each key being read from the preferences only the first time, and writes go into
+// memory at once and to disk FLUSH_DELAY_MILLIS later on a thread of its own, so a burst of them, like a shop full of unlocks, costs a single flush and the
+// render thread never waits on storage. pause() flushes whatever is still pending, since the app may not come back from it
+public class Settings {
+
+    public static final String NAME = "Prefs";
+    public static final long FLUSH_DELAY_MILLIS = 500;
+
+    private static final Object MISSING = new Object(); // cached for keys the preferences don't have, so asking again doesn't go back to them
+
+    private final Preferences prefs; // written and flushed under its own lock, by one thread at a time. reading them is thread safe on every backend
+    private final ObjectMap<String, Object> values; // Boolean, Integer or String, or MISSING, under this
+    private ObjectMap<String, Object> pending; // written since the last flush, under this
+    private ObjectMap<String, Object> flushing; // what the flush in progress is writing, under prefs
+    private final ScheduledExecutorService writer;
+    private final Runnable flushTask;
+    private boolean scheduled; // whether a flush is on its way for what is pending, under this
+
+    public Settings(Preferences prefs) {
+        this.prefs = prefs;
+        values = new ObjectMap<String, Object>();
+        pending = new ObjectMap<String, Object>();
+        flushing = new ObjectMap<String, Object>();
+        writer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "settings-writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        flushTask = new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        };
+        scheduled = false;
+    }
+
+    public synchronized boolean getBoolean(String key, boolean defaultValue) {
+        Object value = values.get(key);
+        if (value == null) {
+            value = prefs.contains(key) ? (Object) prefs.getBoolean(key) : MISSING;
+            values.put(key, value);
+        }
+        return value == MISSING ? defaultValue : (Boolean) value;
+    }
+
+    public synchronized int getInteger(String key, int defaultValue) {
+        Object value = values.get(key);
+        if (value == null) {
+            value = prefs.contains(key) ? (Object) prefs.getInteger(key) : MISSING;
+            values.put(key, value);
+        }
+        return value == MISSING ? defaultValue : (Integer) value;
+    }
+
+    public synchronized String getString(String key, String defaultValue) {
+        Object value = values.get(key);
+        if (value == null) {
+            value = prefs.contains(key) ? prefs.getString(key, defaultValue) : MISSING;
+            values.put(key, value);
+        }
+        return value == MISSING ? defaultValue : (String) value;
+    }
+
+    public void putBoolean(String key, boolean value) {
+        write(key, value);
+    }
+
+    public void putInteger(String key, int value) {
+        write(key, value);
+    }
+
+    public void putString(String key, String value) {
+        write(key, value);
+    }
+
+    // writing what a key already holds schedules nothing
+    private synchronized void write(String key, Object value) {
+        if (value.equals(values.get(key))) {
+            return;
+        }
+        values.put(key, value);
+        pending.put(key, value);
+        if (!scheduled) {
+            scheduled = true;
+            writer.schedule(flushTask, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // writes everything pending to the preferences and flushes them to disk, on the calling thread. the writer thread does this on its own, so outside of it
+    // this is only for pause and dispose
+    public void flush() {
+        synchronized (prefs) {
+            synchronized (this) {
+                if (pending.size == 0) {
+                    return;
+                }
+                ObjectMap<String, Object> swap = flushing;
+                flushing = pending;
+                pending = swap;
+                scheduled = false;
+            }
+            for (ObjectMap.Entry<String, Object> entry : flushing.entries()) {
+                if (entry.value instanceof Boolean) {
+                    prefs.putBoolean(entry.key, (Boolean) entry.value);
+                } else if (entry.value instanceof Integer) {
+                    prefs.putInteger(entry.key, (Integer) entry.value);
+                } else {
+                    prefs.putString(entry.key, (String) entry.value);
+                }
+            }
+            flushing.clear();
+            try {
+                prefs.flush();
+            } catch (GdxRuntimeException e) {
+                Gdx.app.error("Settings", "Couldn't save settings", e); // they stay in memory, and the next write tries again with them included
+            }
+        }
+    }
+
+    // called from the application's pause, while the app is still sure to be running
+    public void pause() {
+        flush();
+    }
+
+    // flushes what is pending and stops the writer thread
+    public void dispose() {
+        writer.shutdown();
+        flush();
+    }
+}
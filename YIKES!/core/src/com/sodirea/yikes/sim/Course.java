@@ -0,0 +1,207 @@
+package com.sodirea.yikes.sim;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.Box2D;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.Pool;
+import com.sodirea.yikes.sprites.Ball;
+import com.sodirea.yikes.sprites.Boulder;
+import com.sodirea.yikes.sprites.Platform;
+
+import static com.sodirea.yikes.sim.Simulation.GRAVITY;
+import static com.sodirea.yikes.sim.Simulation.GROUND_HEIGHT;
+import static com.sodirea.yikes.sim.Simulation.HEIGHT;
+import static com.sodirea.yikes.sim.Simulation.NUM_PLATFORMS;
+import static com.sodirea.yikes.sim.Simulation.PIXELS_TO_METERS;
+import static com.sodirea.yikes.sim.Simulation.PLATFORM_INTERVALS;
+import static com.sodirea.yikes.sim.Simulation.WALL_HEIGHT;
+import static com.sodirea.yikes.sim.Simulation.WALL_WIDTH;
+import static com.sodirea.yikes.sim.Simulation.WIDTH;
+
+// the physical side of a level: a Box2D world with the ground, the two walls, NUM_PLATFORMS platforms with their boulders, and however many balls are on it.
+// building one takes dozens of native Box2D calls, so instead of throwing it away after a run it is reset and used again: balls go back to its pool with their
+// bodies, and the platforms and boulders are parked until layOut puts them in the rows of the next level. the client keeps courses in a CoursePool across
+// states, and a server room keeps its own for the room's lifetime.
+// a run climbs without end, so the course is rebased every REBASE_ROWS rows: everything on it moves down together and positions stay near the origin, where
+// floats, and so Box2D's contacts, are as precise at score 10,000 as at score 10. originRow counts the rows it has moved, to tell where it is in the level
+public class Course implements Pool.Poolable, Disposable {
+
+    public static final int REBASE_ROWS = 50; // 9500 rendering units, 95 meters. floats there still resolve well under a hundredth of Box2D's 5 millimetre linear slop
+
+    private final World world;
+    private final Array<Platform> platforms;
+    private final Array<Boulder> boulders;
+    private final Pool<Ball> balls;
+    private final Array<Ball> ballsInPlay;
+    private final Array<Ball> allBalls; // in play or in the pool, for dispose
+    private boolean laidOut;
+    private int originRow; // how many rows everything has moved down, so level row r has its platforms at LevelGenerator.rowY(r - originRow)
+
+    private final Body groundBody;
+    private final PolygonShape groundBox;
+    private final Body wallBody;
+    private final Body wallBody2;
+    private final PolygonShape wallBox; // shared by both walls, since a fixture copies its shape
+
+    public Course() {
+        Box2D.init();
+        world = new World(new Vector2(0, GRAVITY), true);
+
+        BodyDef groundBodyDef = new BodyDef();
+        groundBodyDef.position.set(WIDTH / 2 * PIXELS_TO_METERS, GROUND_HEIGHT / 2 * PIXELS_TO_METERS);
+        groundBody = world.createBody(groundBodyDef);
+        groundBox = new PolygonShape();
+        groundBox.setAsBox(WIDTH / 2 * PIXELS_TO_METERS, GROUND_HEIGHT / 2 * PIXELS_TO_METERS);
+        groundBody.createFixture(groundBox, 0.0f);
+
+        wallBox = new PolygonShape();
+        wallBox.setAsBox(WALL_WIDTH / 2 * PIXELS_TO_METERS, WALL_HEIGHT / 2 * PIXELS_TO_METERS);
+        FixtureDef wallFixtureDef = new FixtureDef();
+        wallFixtureDef.shape = wallBox;
+        wallFixtureDef.density = 0.0f;
+        wallFixtureDef.friction = 0.0f;
+        BodyDef wallBodyDef = new BodyDef();
+        wallBodyDef.position.set(WALL_WIDTH / 2 * PIXELS_TO_METERS, WALL_HEIGHT / 2 * PIXELS_TO_METERS);
+        wallBody = world.createBody(wallBodyDef);
+        wallBody.createFixture(wallFixtureDef);
+        BodyDef wallBodyDef2 = new BodyDef();
+        wallBodyDef2.position.set((WIDTH - WALL_WIDTH + WALL_WIDTH / 2) * PIXELS_TO_METERS, WALL_HEIGHT / 2 * PIXELS_TO_METERS);
+        wallBody2 = world.createBody(wallBodyDef2);
+        wallBody2.createFixture(wallFixtureDef);
+
+        platforms = new Array<Platform>(NUM_PLATFORMS);
+        boulders = new Array<Boulder>(NUM_PLATFORMS);
+        for (int row = 1; row <= NUM_PLATFORMS; row++) {
+            Platform platform = new Platform(0, LevelGenerator.rowY(row), Platform.MIN_HOLE_WIDTH, world);
+            platform.reset();
+            platforms.add(platform);
+            Boulder boulder = new Boulder(row * PLATFORM_INTERVALS, -100, world);
+            boulder.reset();
+            boulders.add(boulder);
+        }
+        laidOut = false;
+        originRow = 0;
+
+        ballsInPlay = new Array<Ball>();
+        allBalls = new Array<Ball>();
+        balls = new Pool<Ball>() {
+            @Override
+            protected Ball newObject() {
+                Ball ball = new Ball(WIDTH / 2 - Ball.SIZE / 2, GROUND_HEIGHT, world);
+                allBalls.add(ball);
+                return ball;
+            }
+        };
+    }
+
+    // puts the platforms of a new or reset course in the first NUM_PLATFORMS rows of level, and their boulders out of sight below the ground until they are first dropped onto a platform
+    public void layOut(LevelGenerator level) {
+        for (int i = 0; i < NUM_PLATFORMS; i++) {
+            int row = i + 1;
+            platforms.get(i).reposition(level.holeX(row), LevelGenerator.rowY(row), level.holeWidth(row));
+            boulders.get(i).reposition(row * PLATFORM_INTERVALS, -100, 0);
+        }
+        laidOut = true;
+    }
+
+    // false until layOut, while the platforms and boulders are parked out of the world
+    public boolean isLaidOut() {
+        return laidOut;
+    }
+
+    // a ball at rest at x, y in rendering coordinates, reusing the bodies of one that was freed when there is one
+    public Ball obtainBall(BodyDef.BodyType type, float x, float y) {
+        Ball ball = balls.obtain();
+        ball.place(type, x, y);
+        ballsInPlay.add(ball);
+        return ball;
+    }
+
+    // takes the ball out of the world and keeps it for the next obtainBall. can't be called during world.step
+    public void freeBall(Ball ball) {
+        if (ballsInPlay.removeValue(ball, true)) {
+            balls.free(ball);
+        }
+    }
+
+    // once the bottom of the view at cameraY has climbed REBASE_ROWS rows, moves everything on the course down by that many rows. returns how far it moved,
+    // in rendering coordinates, or 0 if it didn't: whoever keeps positions on the course outside of it, like the camera, moves them by as much.
+    // can't be called during world.step
+    public float rebase(float cameraY) {
+        if (cameraY - HEIGHT / 2 < LevelGenerator.rowY(REBASE_ROWS)) {
+            return 0;
+        }
+        float dy = -REBASE_ROWS * PLATFORM_INTERVALS;
+        groundBody.setTransform(groundBody.getPosition().x, groundBody.getPosition().y + dy * PIXELS_TO_METERS, 0);
+        wallBody.setTransform(wallBody.getPosition().x, wallBody.getPosition().y + dy * PIXELS_TO_METERS, 0);
+        wallBody2.setTransform(wallBody2.getPosition().x, wallBody2.getPosition().y + dy * PIXELS_TO_METERS, 0);
+        for (int i = 0; i < NUM_PLATFORMS; i++) {
+            platforms.get(i).shiftY(dy);
+            boulders.get(i).shiftY(dy);
+        }
+        for (int i = 0; i < ballsInPlay.size; i++) {
+            ballsInPlay.get(i).shiftY(dy);
+        }
+        originRow += REBASE_ROWS;
+        return dy;
+    }
+
+    // how many rows the course has moved down since it was laid out, see rebase
+    public int getOriginRow() {
+        return originRow;
+    }
+
+    // keeps the walls level with the camera, cameraY being the middle of the visible area
+    public void moveWalls(float cameraY) {
+        wallBody.setTransform(wallBody.getPosition().x, cameraY * PIXELS_TO_METERS, 0);
+        wallBody2.setTransform(wallBody2.getPosition().x, cameraY * PIXELS_TO_METERS, 0);
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public Array<Platform> getPlatforms() {
+        return platforms;
+    }
+
+    public Array<Boulder> getBoulders() {
+        return boulders;
+    }
+
+    // empties the course for the next run. the contact listener goes first, so taking the balls out doesn't report contacts ending to whoever used it last
+    @Override
+    public void reset() {
+        world.setContactListener(null);
+        balls.freeAll(ballsInPlay);
+        ballsInPlay.clear();
+        for (int i = 0; i < NUM_PLATFORMS; i++) {
+            platforms.get(i).reset();
+            boulders.get(i).reset();
+        }
+        laidOut = false;
+        originRow = 0;
+        groundBody.setTransform(WIDTH / 2 * PIXELS_TO_METERS, GROUND_HEIGHT / 2 * PIXELS_TO_METERS, 0);
+        moveWalls(WALL_HEIGHT / 2);
+    }
+
+    @Override
+    public void dispose() {
+        for (int i = 0; i < allBalls.size; i++) {
+            allBalls.get(i).dispose();
+        }
+        for (int i = 0; i < NUM_PLATFORMS; i++) {
+            platforms.get(i).dispose();
+            boulders.get(i).dispose();
+        }
+        groundBox.dispose();
+        wallBox.dispose();
+        world.dispose();
+    }
+}
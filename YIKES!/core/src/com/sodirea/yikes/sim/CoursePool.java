@@ -0,0 +1,41 @@
+package com.sodirea.yikes.sim;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.Pool;
+
+// the client's courses, kept across states so starting a run or going back to the menu reuses a world instead of building one. there are rarely more than
+// two, since a new state obtains its course before the old one frees its own
+public class CoursePool extends Pool<Course> implements Disposable {
+
+    private final Array<Course> courses; // every course built, free or not, for dispose
+
+    public CoursePool() {
+        courses = new Array<Course>();
+    }
+
+    @Override
+    protected Course newObject() {
+        Course course = new Course();
+        courses.add(course);
+        return course;
+    }
+
+    // builds one more course if fewer than free are waiting to be obtained, so the state that obtains one next finds it ready. building a course is a few
+    // milliseconds of native calls, so this is meant to be called once a frame until it returns true rather than in a loop
+    public boolean prepare(int free) {
+        if (getFree() < free) {
+            free(newObject());
+        }
+        return getFree() >= free;
+    }
+
+    @Override
+    public void dispose() {
+        for (int i = 0; i < courses.size; i++) {
+            courses.get(i).dispose();
+        }
+        courses.clear();
+        clear();
+    }
+}
@@ -0,0 +1,22 @@
+package com.sodirea.yikes.sim;
+
+// everything a player can do during one fixed step. whatever drives the simulation (touch screen, network, bots) fills this in, and Simulation.step reads it
+public class InputCommand {
+
+    public boolean jump; // true if the player tapped since the last step
+    public float tilt; // accelerometer x reading. 0 leaves the ball's horizontal velocity alone
+
+    public InputCommand() {
+        clear();
+    }
+
+    public void set(InputCommand other) {
+        jump = other.jump;
+        tilt = other.tilt;
+    }
+
+    public void clear() {
+        jump = false;
+        tilt = 0;
+    }
+}
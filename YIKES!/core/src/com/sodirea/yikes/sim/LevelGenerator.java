@@ -0,0 +1,94 @@
+package com.sodirea.yikes.sim;
+
+import com.sodirea.yikes.sprites.Boulder;
+import com.sodirea.yikes.sprites.Platform;
+
+import static com.sodirea.yikes.sim.Simulation.GROUND_HEIGHT;
+import static com.sodirea.yikes.sim.Simulation.PLATFORM_INTERVALS;
+import static com.sodirea.yikes.sim.Simulation.WIDTH;
+
+// the course, worked out from a seed. platforms sit in rows PLATFORM_INTERVALS apart, counting up from 1 just above the ground, and everything about a row
+// (its hole, and whether a boulder lands on it and how fast) is hashed from the seed and the row number alone. anyone with the same seed gets the same
+// course, in any order and without keeping state, so multiplayer rooms only share the seed and benchmarks can replay the same run
+public class LevelGenerator {
+
+    public static final int MIN_BOULDER_VELOCITY = 20;
+    public static final int MAX_ADDITIONAL_BOULDER_VELOCITY = 10;
+
+    // a separate stream of values for each property of a row, so they don't depend on each other
+    private static final long HOLE_WIDTH = 1;
+    private static final long HOLE_X = 2;
+    private static final long BOULDER = 3;
+    private static final long BOULDER_VELOCITY = 4;
+
+    private final long seed;
+
+    public LevelGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // an independent generator for something else that needs its own course from the same seed, e.g. the menu's background
+    public LevelGenerator split(long stream) {
+        return new LevelGenerator(mix(seed ^ mix(stream)));
+    }
+
+    // the y coordinate of a row's platforms
+    public static float rowY(int row) {
+        return GROUND_HEIGHT + row * PLATFORM_INTERVALS;
+    }
+
+    // the row a platform at height y is in
+    public static int rowAt(float y) {
+        return Math.round((y - GROUND_HEIGHT) / PLATFORM_INTERVALS);
+    }
+
+    public int holeWidth(int row) {
+        return Platform.MIN_HOLE_WIDTH + nextInt(row, HOLE_WIDTH, Platform.MAX_ADDITIONAL_HOLE_WIDTH);
+    }
+
+    // the x coordinate of the left edge of the row's hole
+    public int holeX(int row) {
+        return nextInt(row, HOLE_X, WIDTH - holeWidth(row));
+    }
+
+    // whether a boulder is dropped onto the row when its platform is put in place. true half the time
+    public boolean hasBoulder(int row) {
+        return nextInt(row, BOULDER, 2) == 0;
+    }
+
+    public int boulderVelocity(int row) {
+        return MIN_BOULDER_VELOCITY + nextInt(row, BOULDER_VELOCITY, MAX_ADDITIONAL_BOULDER_VELOCITY);
+    }
+
+    // moves platform to the given row, dropping boulder on top of it if the row has one. returns true if the boulder was moved
+    public boolean reposition(Platform platform, Boulder boulder, int row) {
+        return reposition(platform, boulder, row, 0);
+    }
+
+    // the same on a course that has been rebased originRow rows down, see Course.rebase. row is still counted from the ground, so it picks the same hole
+    public boolean reposition(Platform platform, Boulder boulder, int row, int originRow) {
+        platform.reposition(holeX(row), rowY(row - originRow), holeWidth(row));
+        if (hasBoulder(row)) {
+            boulder.reposition(platform.getPosition().x, platform.getPosition().y + Platform.HEIGHT, boulderVelocity(row));
+            return true;
+        }
+        return false;
+    }
+
+    // a value from 0 up to but not including bound, the same every time for the same seed, row and stream
+    private int nextInt(int row, long stream, int bound) {
+        long bits = mix(seed + mix(row * 0x9E3779B97F4A7C15L + stream)) >>> 33; // 31 well mixed bits
+        return (int) (bits % bound);
+    }
+
+    // the SplitMix64 finaliser, which spreads every input bit over the whole output
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
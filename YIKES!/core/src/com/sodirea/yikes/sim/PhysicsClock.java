@@ -0,0 +1,41 @@
+package com.sodirea.yikes.sim;
+
+public class PhysicsClock {
+
+    public static final float STEP_INTERVAL = 1 / 60f; // real seconds per fixed step. the game was tuned with one world.step(TIME_STEP) per frame at 60 fps
+    public static final int MAX_STEPS_PER_FRAME = 5; // caps how much a slow frame can catch up, so it can't snowball into ever slower frames
+
+    private float accumulator;
+    private float alpha;
+
+    // creates a clock that turns variable frame times into a whole number of fixed simulation steps
+    public PhysicsClock() {
+        accumulator = 0;
+        alpha = 0;
+    }
+
+    // adds the real time that passed since the last frame, and returns how many fixed steps should be simulated this frame (possibly 0)
+    public int advance(float dt) {
+        accumulator += dt;
+        int steps = (int) (accumulator / STEP_INTERVAL);
+        if (steps > MAX_STEPS_PER_FRAME) {
+            // the device can't keep up, so drop the time we couldn't simulate instead of carrying it into the next frame
+            steps = MAX_STEPS_PER_FRAME;
+            accumulator = 0;
+        } else {
+            accumulator -= steps * STEP_INTERVAL;
+        }
+        alpha = accumulator / STEP_INTERVAL;
+        return steps;
+    }
+
+    // how far the current frame is between the previous and the latest step, from 0 to 1. used to interpolate rendering positions
+    public float getAlpha() {
+        return alpha;
+    }
+
+    public void reset() {
+        accumulator = 0;
+        alpha = 0;
+    }
+}
@@ -0,0 +1,94 @@
+package com.sodirea.yikes.sim;
+
+import com.sodirea.yikes.sprites.Ball;
+
+// one ball in a Simulation, along with the input that drives it and its progress through the run. MultiplayerState also wraps its own ball in one,
+// to predict its movement with the same rules the server runs
+public class Player {
+
+    private String id;
+    private Ball ball;
+    private InputCommand input;
+    private boolean doubleJump; // whether they own the double jump upgrade
+    private int airJumpsRemaining;
+    private int score;
+    private int lastPlatformClearedRow; // the level row, 0 before the first one
+    private boolean dead;
+
+    public Player(String id, Ball ball, boolean doubleJump) {
+        this.id = id;
+        this.ball = ball;
+        this.doubleJump = doubleJump;
+        input = new InputCommand();
+        if (doubleJump) { // if they own double jump, give them an air jump
+            airJumpsRemaining = 1;
+        } else {
+            airJumpsRemaining = 0;
+        }
+        score = 0;
+        lastPlatformClearedRow = 0;
+        dead = false;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Ball getBall() {
+        return ball;
+    }
+
+    // the command applied on the next step. whoever controls this player writes into it between steps
+    public InputCommand getInput() {
+        return input;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public boolean isDead() {
+        return dead;
+    }
+
+    // applies this step's jump and tilt to the ball. returns true if the ball jumped
+    public boolean applyInput() {
+        boolean jumped = false;
+        if (!dead && input.jump) {
+            // if the foot sensor is in contact with something other than the ball, then jump
+            if (ball.getNumberOfFootContacts() > 0) {
+                ball.setBodyLinearVelocity(ball.getBodyLinearVelocity().x, Simulation.JUMP_VELOCITY);
+                // if they own double jump and their foot sensor is in contact with something, then give them their air jumps back
+                if (doubleJump) {
+                    airJumpsRemaining = 1;
+                }
+                jumped = true;
+            // if their foot sensor is not in contact with anything, but they have air jumps, then jump
+            } else if (airJumpsRemaining > 0) {
+                ball.setBodyLinearVelocity(ball.getBodyLinearVelocity().x, Simulation.JUMP_VELOCITY);
+                airJumpsRemaining--;
+                jumped = true;
+            }
+        }
+        input.jump = false; // a tap only jumps once
+        // player's horizontal movements are controlled by tilting the screen
+        if (input.tilt != 0) {
+            ball.setBodyLinearVelocity(Simulation.TILT_VELOCITY * input.tilt, ball.getBodyLinearVelocity().y);
+        }
+        return jumped;
+    }
+
+    // called when the ball lands on top of a platform in the given level row that no one has cleared yet. rows rather than heights, so rebasing the course doesn't matter
+    void clearPlatform(int row) {
+        if (lastPlatformClearedRow == 0) {
+            score++;
+        } else {
+            score += row - lastPlatformClearedRow; // if they skipped a platform (as in they didn't clear one), then the next time they clear a platform, add score equal to the number of platforms they have skipped + the current platform
+        }
+        lastPlatformClearedRow = row;
+    }
+
+    void die() {
+        dead = true;
+    }
+}
@@ -0,0 +1,313 @@
+package com.sodirea.yikes.sim;
+
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.physics.box2d.ContactImpulse;
+import com.badlogic.gdx.physics.box2d.ContactListener;
+import com.badlogic.gdx.physics.box2d.Manifold;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.sodirea.yikes.sprites.Ball;
+import com.sodirea.yikes.sprites.Boulder;
+import com.sodirea.yikes.sprites.Platform;
+
+import java.util.Random;
+
+// the game rules, without any rendering, input polling or sound. one or more players share the same course; whoever controls each player fills in its InputCommand, and a view or server steps the simulation and shows whatever state it ends up in
+public class Simulation {
+
+    public static final int WIDTH = 480; // size of the visible area in rendering coordinates
+    public static final int HEIGHT = 800;
+    public static final int GROUND_HEIGHT = 150; // matching ground.png, which spans the whole width
+    public static final int WALL_WIDTH = 30; // matching wall.png
+    public static final int WALL_HEIGHT = 3000;
+    public static final int PLATFORM_INTERVALS = 190;
+    public static final int NUM_PLATFORMS = 6;
+    public static final float PIXELS_TO_METERS = 0.01f;
+    public static final int GRAVITY = -500;
+    public static final float TIME_STEP = 1 / 300f;
+    public static final float SCROLL_GROWTH_PER_STEP = (float) Math.pow(1.02, PhysicsClock.STEP_INTERVAL); // the camera speeds up by 2% every second
+    public static final float JUMP_VELOCITY = 50f;
+    public static final float TILT_VELOCITY = -20f; // horizontal velocity per unit of accelerometer tilt
+
+    private SimulationListener listener;
+
+    private Array<Player> players;
+    private float totalTimePassed;
+    private float scrollSpeedMultiplier; // 1.02 to the power of totalTimePassed
+    private boolean startCamera; // true once the camera is scrolling
+    private long cameraStartStep; // the step the camera starts scrolling on, -1 until startCamera() is called
+    private int cameraStartDelay;
+    private long steps; // how many steps have been taken
+    private float cameraY; // center of the visible area
+
+    private Array<Platform> platformArray;
+    private Array<Boulder> boulderArray;
+    private LevelGenerator level;
+
+    private Course course;
+    private boolean ownsCourse; // true when the simulation built its course itself, and so disposes it
+    private World world;
+
+    // creates a new run on a random course with no players yet. add them with addPlayer before the camera starts
+    public Simulation(SimulationListener listener) {
+        this(listener, new Random().nextLong());
+    }
+
+    // creates a new run on the course worked out from seed, see LevelGenerator
+    public Simulation(SimulationListener listener, long seed) {
+        this(listener, seed, new Course());
+        ownsCourse = true;
+    }
+
+    // creates a new run laid out on course, which has to be empty, i.e. new or reset. the course stays the caller's to reset or dispose after the run
+    public Simulation(SimulationListener listener, long seed, Course course) {
+        this.listener = listener;
+        level = new LevelGenerator(seed);
+        this.course = course;
+        ownsCourse = false;
+        world = course.getWorld();
+        world.setContactListener(new ContactListener() {
+            @Override
+            public void beginContact(Contact contact) {
+                footContact(contact.getFixtureA().getBody().getUserData(), contact.getFixtureB().getBody().getUserData(), true);
+                footContact(contact.getFixtureB().getBody().getUserData(), contact.getFixtureA().getBody().getUserData(), true);
+            }
+
+            @Override
+            public void endContact(Contact contact) {
+                footContact(contact.getFixtureA().getBody().getUserData(), contact.getFixtureB().getBody().getUserData(), false);
+                footContact(contact.getFixtureB().getBody().getUserData(), contact.getFixtureA().getBody().getUserData(), false);
+            }
+
+            @Override
+            public void preSolve(Contact contact, Manifold oldManifold) {
+            }
+
+            @Override
+            public void postSolve(Contact contact, ContactImpulse impulse) {
+            }
+        });
+        cameraY = HEIGHT / 2;
+
+        players = new Array<Player>();
+        startCamera = false;
+        cameraStartStep = -1;
+        cameraStartDelay = 0;
+        steps = 0;
+        totalTimePassed = 0;
+        scrollSpeedMultiplier = 1;
+
+        // putting the course's platforms in the first rows of the level, with their boulders out of sight below the ground until they are first dropped onto a platform
+        course.layOut(level);
+        platformArray = course.getPlatforms();
+        boulderArray = course.getBoulders();
+    }
+
+    // counts the foot sensor of a player's ball touching something. if it lands on top of a platform that hasn't been cleared, then the player scores it
+    private void footContact(Object self, Object other, boolean begin) {
+        if (!(self instanceof Ball)) {
+            return;
+        }
+        Player player = findPlayer((Ball) self);
+        if (player == null) {
+            return;
+        }
+        Platform platform = countFootContact(player.getBall(), other, begin);
+        if (platform != null) {
+            player.clearPlatform(getRow(platform));
+            startCamera();
+            listener.scored(player);
+        }
+    }
+
+    // the foot contact rule of every copy of the course, this simulation and a client predicting its own ball alike, called with each fixture's user data
+    // in both orders. counts, or stops counting, ball's foot sensor touching other, which is null for the ground and the walls. if the ball lands on top of
+    // a platform that hasn't been cleared, then the platform is cleared, so its hole closes, and returned. returns null otherwise
+    public static Platform countFootContact(Ball ball, Object other, boolean begin) {
+        if (!begin) {
+            ball.lessNumberOfFootContacts();
+            return null;
+        }
+        ball.addNumberOfFootContacts(); // add to the total number of contact points
+        // the lowest point of the ball has to be higher than the highest point of the touched platform. measured from the body, where the step began, since
+        // a step run again to correct a prediction doesn't update getPosition
+        if (other instanceof Platform) {
+            Platform platform = (Platform) other;
+            if (ball.getBodyY() > platform.getPosition().y + Platform.HEIGHT && !platform.getIsCleared()) {
+                platform.cleared();
+                return platform;
+            }
+        }
+        return null;
+    }
+
+    // the level row a platform is in, counted from the ground however far the course has been rebased
+    private int getRow(Platform platform) {
+        return LevelGenerator.rowAt(platform.getPosition().y) + course.getOriginRow();
+    }
+
+    private Player findPlayer(Ball ball) {
+        for (int i = 0; i < players.size; i++) {
+            if (players.get(i).getBall() == ball) {
+                return players.get(i);
+            }
+        }
+        return null;
+    }
+
+    // adds a ball resting in the middle of the ground. doubleJump is whether the player owns the double jump upgrade
+    public Player addPlayer(String id, boolean doubleJump) {
+        Player player = new Player(id, course.obtainBall(BodyDef.BodyType.DynamicBody, WIDTH / 2 - Ball.SIZE / 2, GROUND_HEIGHT), doubleJump);
+        players.add(player);
+        return player;
+    }
+
+    // takes the player's ball off the course, keeping its bodies for whoever joins next. can't be called during step
+    public void removePlayer(Player player) {
+        players.removeValue(player, true);
+        course.freeBall(player.getBall());
+    }
+
+    // starts scrolling the camera upwards, cameraStartDelay steps from now. happens by itself when someone first clears a platform
+    public void startCamera() {
+        if (cameraStartStep < 0) {
+            cameraStartStep = steps + cameraStartDelay;
+            listener.cameraStarted();
+        }
+    }
+
+    // how many steps after startCamera() the camera actually starts, 0 by default. a server delays it so it can tell every client which step it starts on
+    // before that step comes, and they all scroll in lockstep
+    public void setCameraStartDelay(int steps) {
+        cameraStartDelay = steps;
+    }
+
+    // marks a player as dead without waiting for their ball to fall off the screen
+    public void kill(Player player) {
+        if (!player.isDead()) {
+            player.die();
+            listener.died(player);
+        }
+    }
+
+    // applies every player's input, then advances the game by one fixed step of dt seconds
+    public void step(float dt) {
+        float shift = course.rebase(cameraY);
+        if (shift != 0) {
+            cameraY += shift;
+            listener.rebased(shift);
+        }
+        for (int i = 0; i < players.size; i++) {
+            Player player = players.get(i);
+            if (player.applyInput()) {
+                listener.jumped(player);
+            }
+        }
+
+        course.moveWalls(cameraY);
+        for (int i = 0; i < players.size; i++) {
+            players.get(i).getBall().update(dt);
+        }
+        for (Boulder boulder: boulderArray) {
+            boulder.update(dt);
+        }
+        for (int i = 0; i < platformArray.size; i++) {
+            Platform platform = platformArray.get(i);
+            platform.update(dt);
+            // if a platform falls below the screen, then reposition the platform by putting it in the next row above the screen, along with its boulder if the row has one
+            if (platform.getPosition().y + Platform.HEIGHT < cameraY - HEIGHT / 2) {
+                boolean boulderMoved = level.reposition(platform, boulderArray.get(i), getRow(platform) + NUM_PLATFORMS, course.getOriginRow());
+                listener.platformRepositioned(i);
+                if (boulderMoved) {
+                    listener.boulderRepositioned(i);
+                }
+            }
+        }
+        // once the camera's start step comes, start scrolling upwards, while scaling the scroll speed with time
+        if (!startCamera && cameraStartStep >= 0 && steps >= cameraStartStep) {
+            startCamera = true;
+        }
+        if (startCamera) {
+            if (totalTimePassed < 60) {
+                totalTimePassed += dt;
+                scrollSpeedMultiplier *= SCROLL_GROWTH_PER_STEP;
+            }
+            cameraY += 4 * Ball.SCALING_FACTOR * (scrollSpeedMultiplier + 2);
+        }
+        // checks if any ball fell under the screen, i.e. game over for that player
+        for (int i = 0; i < players.size; i++) {
+            Player player = players.get(i);
+            if (cameraY - HEIGHT / 2 > player.getBall().getPosition().y + Ball.SIZE) {
+                kill(player);
+            }
+        }
+        world.step(TIME_STEP, 6, 2);
+        steps++;
+    }
+
+    public Array<Player> getPlayers() {
+        return players;
+    }
+
+    // true once every player has died. false while there are no players at all
+    public boolean isEveryoneDead() {
+        for (int i = 0; i < players.size; i++) {
+            if (!players.get(i).isDead()) {
+                return false;
+            }
+        }
+        return players.size > 0;
+    }
+
+    public Array<Platform> getPlatforms() {
+        return platformArray;
+    }
+
+    public Array<Boulder> getBoulders() {
+        return boulderArray;
+    }
+
+    public LevelGenerator getLevel() {
+        return level;
+    }
+
+    // center of the visible area, measured like everything else from the course's current origin, see getOriginRow
+    public float getCameraY() {
+        return cameraY;
+    }
+
+    // how many rows the course has been moved down to keep positions small, see Course.rebase. a position's height in the level is its y plus this many
+    // PLATFORM_INTERVALS
+    public int getOriginRow() {
+        return course.getOriginRow();
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public Course getCourse() {
+        return course;
+    }
+
+    public boolean isCameraStarted() {
+        return startCamera;
+    }
+
+    // the step the camera starts, or started, scrolling on. -1 if startCamera() hasn't been called
+    public long getCameraStartStep() {
+        return cameraStartStep;
+    }
+
+    public long getSteps() {
+        return steps;
+    }
+
+    // disposes the course if the simulation built it. a course passed in is left to its owner
+    public void dispose() {
+        if (ownsCourse) {
+            course.dispose();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.sodirea.yikes.sim;
+
+// a SimulationListener that ignores every event, for listeners that only care about a few of them
+public class SimulationAdapter implements SimulationListener {
+
+    @Override
+    public void jumped(Player player) {
+    }
+
+    @Override
+    public void scored(Player player) {
+    }
+
+    @Override
+    public void died(Player player) {
+    }
+
+    @Override
+    public void cameraStarted() {
+    }
+
+    @Override
+    public void platformRepositioned(int index) {
+    }
+
+    @Override
+    public void boulderRepositioned(int index) {
+    }
+
+    @Override
+    public void rebased(float dy) {
+    }
+}
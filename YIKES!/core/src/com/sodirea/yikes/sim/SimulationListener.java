@@ -0,0 +1,23 @@
+package com.sodirea.yikes.sim;
+
+// gameplay events raised by the simulation during a step, so views can play sounds and update text, and servers can tell clients what changed, without the simulation knowing about either
+public interface SimulationListener {
+
+    void jumped(Player player);
+
+    void scored(Player player);
+
+    void died(Player player);
+
+    void cameraStarted();
+
+    // the platform at this index was moved above the screen, and given a new x and hole width
+    void platformRepositioned(int index);
+
+    // the boulder at this index was dropped onto a newly repositioned platform
+    void boulderRepositioned(int index);
+
+    // everything, the camera included, moved dy (negative) in rendering coordinates at the start of the step, see Course.rebase. anything the listener keeps
+    // from earlier positions, like where the camera was, moves by as much
+    void rebased(float dy);
+}
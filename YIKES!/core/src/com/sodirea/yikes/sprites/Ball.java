@@ -1,7 +1,6 @@
 package com.sodirea.yikes.sprites;
 
-import com.badlogic.gdx.graphics.Texture;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Circle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
@@ -11,15 +10,18 @@ import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.FixtureDef;
 import com.badlogic.gdx.physics.box2d.PolygonShape;
 import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Pool;
 
-import static com.sodirea.yikes.states.PlayState.PIXELS_TO_METERS;
+import static com.sodirea.yikes.sim.Simulation.PIXELS_TO_METERS;
 
-public class Ball {
+public class Ball implements Pool.Poolable {
 
     public static final float SCALING_FACTOR = 0.17f;
+    public static final int SIZE = 50; // diameter in rendering coordinates, matching ball.png
 
-    private Texture ball;
     private Vector2 position;
+    private Vector2 previousPosition; // position as of the previous fixed step, for interpolating between steps when rendering
+    private boolean teleported; // true when the ball was moved with setPosition, so the next update shouldn't interpolate across the jump
     private int numberOfFootContacts;
     private Circle bounds;
 
@@ -37,18 +39,25 @@ public class Ball {
 
     // creates a ball object, which consists of a physics body, a foot sensor, and a render body, at the specified coordinates
     public Ball(float x, float y, World world) {
-        ball = new Texture("ball.png");
+        this(BodyDef.BodyType.DynamicBody, x, y, world);
+    }
+
+    // a KinematicBody ball ignores gravity and collisions with the level and is only moved through moveTo, for showing balls simulated elsewhere.
+    // it still pushes dynamic balls out of its way, but costs world.step next to nothing
+    public Ball(BodyDef.BodyType type, float x, float y, World world) {
         position = new Vector2(x, y);
+        previousPosition = new Vector2(x, y);
+        teleported = false;
         numberOfFootContacts = 0;
-        bounds = new Circle(position.x + ball.getWidth() / 2, position.y + ball.getHeight() / 2, ball.getWidth() / 2);
+        bounds = new Circle(position.x + SIZE / 2, position.y + SIZE / 2, SIZE / 2);
 
         // creating the ball's physics body
         ballBodyDef = new BodyDef();
-        ballBodyDef.type = BodyDef.BodyType.DynamicBody;
-        ballBodyDef.position.set((position.x+ball.getWidth()/2) * PIXELS_TO_METERS, (position.y+ball.getHeight()/2) * PIXELS_TO_METERS); // convert render coordinates to physics body coodinates
+        ballBodyDef.type = type;
+        ballBodyDef.position.set((position.x+SIZE/2) * PIXELS_TO_METERS, (position.y+SIZE/2) * PIXELS_TO_METERS); // convert render coordinates to physics body coodinates
         ballBody = world.createBody(ballBodyDef);
         ballCircle = new CircleShape();
-        ballCircle.setRadius((ball.getWidth()/2) * PIXELS_TO_METERS);
+        ballCircle.setRadius((SIZE/2) * PIXELS_TO_METERS);
         ballFixtureDef = new FixtureDef();
         ballFixtureDef.shape = ballCircle;
         ballFixtureDef.density = 500f;
@@ -57,7 +66,7 @@ public class Ball {
 
         // adding a foot sensor for detecting if the ball could jump / is standing on something. NOTE: a separate body for the sensor is needed. if i only made a foot sensor fixture and attached it to ballBody, then the rotation of the ball would cause the foot sensor to also rotate, meaning the foot sensor would not always be beneath the ball
         footBodyDef = new BodyDef();
-        footBodyDef.type = BodyDef.BodyType.DynamicBody;
+        footBodyDef.type = type;
         footBodyDef.position.set(ballBody.getPosition().x, ballBody.getPosition().y - ballCircle.getRadius() - ballCircle.getRadius() / 8 -  2*PIXELS_TO_METERS);
         footBody = world.createBody(footBodyDef);
         footBox = new PolygonShape();
@@ -72,16 +81,64 @@ public class Ball {
 
     }
 
+    // puts a ball taken from a pool back into the world, at rest at x, y in rendering coordinates and moving as type says
+    public void place(BodyDef.BodyType type, float x, float y) {
+        ballBody.setType(type);
+        footBody.setType(type);
+        ballBody.setTransform((x+SIZE/2) * PIXELS_TO_METERS, (y+SIZE/2) * PIXELS_TO_METERS, 0);
+        ballBody.setLinearVelocity(0, 0);
+        ballBody.setAngularVelocity(0);
+        footBody.setTransform(ballBody.getPosition().x, ballBody.getPosition().y - ballCircle.getRadius() - ballCircle.getRadius()/8 - 2*PIXELS_TO_METERS, 0);
+        footBody.setLinearVelocity(0, 0);
+        ballBody.setActive(true);
+        footBody.setActive(true);
+        position.set(x, y);
+        previousPosition.set(position);
+        bounds.setPosition(position.x + SIZE / 2, position.y + SIZE / 2);
+        teleported = false;
+        numberOfFootContacts = 0;
+    }
+
+    // takes the ball's bodies out of the world without destroying them, so place can bring them back. can't be called during world.step
+    @Override
+    public void reset() {
+        ballBody.setActive(false);
+        footBody.setActive(false);
+        numberOfFootContacts = 0;
+        teleported = false;
+    }
+
     public Vector2 getPosition() {
         return position;
     }
 
     public void setPosition(float x, float y) { // x, y are in rendering coordinates. changes the ballBody position, which then changes the rendering position through the update() method
-        ballBody.setTransform(new Vector2((x+ball.getWidth()/2) * PIXELS_TO_METERS, (y+ball.getHeight()/2) * PIXELS_TO_METERS), ballBody.getAngle());
+        ballBody.setTransform((x+SIZE/2) * PIXELS_TO_METERS, (y+SIZE/2) * PIXELS_TO_METERS, ballBody.getAngle());
+        teleported = true;
+    }
+
+    // moves the ball to x, y (in rendering coordinates) as part of its regular motion, so rendering still interpolates from where it was
+    public void moveTo(float x, float y) {
+        ballBody.setTransform((x+SIZE/2) * PIXELS_TO_METERS, (y+SIZE/2) * PIXELS_TO_METERS, ballBody.getAngle());
+    }
+
+    // moves the ball dy up (or down, when negative) along with the rest of its course when the course is rebased, see Course.rebase. unlike setPosition
+    // and moveTo, nothing about its motion or rendering changes, it is only measured from somewhere else
+    public void shiftY(float dy) {
+        ballBody.setTransform(ballBody.getPosition().x, ballBody.getPosition().y + dy * PIXELS_TO_METERS, ballBody.getAngle());
+        footBody.setTransform(footBody.getPosition().x, footBody.getPosition().y + dy * PIXELS_TO_METERS, 0);
+        position.y += dy;
+        previousPosition.y += dy;
+        bounds.setPosition(position.x + SIZE / 2, position.y + SIZE / 2);
+    }
+
+    // where the body is now in rendering coordinates. getPosition only catches up with it on the next update
+    public float getBodyX() {
+        return ballBody.getPosition().x / PIXELS_TO_METERS - SIZE / 2;
     }
 
-    public Texture getTexture(){
-        return ball;
+    public float getBodyY() {
+        return ballBody.getPosition().y / PIXELS_TO_METERS - SIZE / 2;
     }
 
     public Vector2 getBodyLinearVelocity() {
@@ -104,18 +161,36 @@ public class Ball {
         return numberOfFootContacts;
     }
 
+    // called once per fixed step
     public void update(float dt) {
-        position.set(ballBody.getPosition().x/PIXELS_TO_METERS-ball.getWidth()/2, ballBody.getPosition().y/PIXELS_TO_METERS-ball.getHeight()/2); // convert physics body coordinates back to render coordinates. this ensures that the rendering position is always in sync with the physics body's position
-        footBody.setTransform(new Vector2(ballBody.getPosition().x, ballBody.getPosition().y - ballCircle.getRadius() - ballCircle.getRadius()/8 - 2*PIXELS_TO_METERS), 0); // update the foot sensor body's position to constantly be under the ball's body
-        bounds.setPosition(position.x + ball.getWidth() / 2, position.y + ball.getHeight() / 2);
+        previousPosition.set(position);
+        position.set(ballBody.getPosition().x/PIXELS_TO_METERS-SIZE/2, ballBody.getPosition().y/PIXELS_TO_METERS-SIZE/2); // convert physics body coordinates back to render coordinates. this ensures that the rendering position is always in sync with the physics body's position
+        followBody();
+        bounds.setPosition(position.x + SIZE / 2, position.y + SIZE / 2);
+        if (teleported) {
+            previousPosition.set(position);
+            teleported = false;
+        }
+    }
+
+    // puts the foot sensor back under the ball's body, without touching where the ball is drawn. update does this every step, and steps that are run again
+    // to correct a prediction do it on their own
+    public void followBody() {
+        footBody.setTransform(ballBody.getPosition().x, ballBody.getPosition().y - ballCircle.getRadius() - ballCircle.getRadius()/8 - 2*PIXELS_TO_METERS, 0);
+    }
+
+    // draws the ball between its previous and current step positions, alpha being how far the frame is between the two steps
+    public void render(RenderList list, TextureRegion ball, float alpha) {
+        list.add(ball, previousPosition.x + (position.x - previousPosition.x) * alpha, previousPosition.y + (position.y - previousPosition.y) * alpha, RenderList.LAYER_BALLS);
     }
 
-    public void render(SpriteBatch sb) {
-        sb.draw(ball, position.x, position.y);
+    // removes the ball's bodies from the world, for when the ball leaves the game before the world itself is disposed
+    public void destroy(World world) {
+        world.destroyBody(ballBody);
+        world.destroyBody(footBody);
     }
 
     public void dispose() {
-        ball.dispose();
         ballCircle.dispose();
         footBox.dispose();
     }
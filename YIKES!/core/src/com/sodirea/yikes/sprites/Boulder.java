@@ -1,7 +1,6 @@
 package com.sodirea.yikes.sprites;
 
-import com.badlogic.gdx.graphics.Texture;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Circle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
@@ -10,21 +9,20 @@ import com.badlogic.gdx.physics.box2d.CircleShape;
 import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.FixtureDef;
 import com.badlogic.gdx.physics.box2d.World;
-import com.sodirea.yikes.Yikes;
+import com.badlogic.gdx.utils.Pool;
 
-import java.util.Random;
+import static com.sodirea.yikes.sim.Simulation.PIXELS_TO_METERS;
+import static com.sodirea.yikes.sim.Simulation.WALL_WIDTH;
+import static com.sodirea.yikes.sim.Simulation.WIDTH;
 
-import static com.sodirea.yikes.states.PlayState.PIXELS_TO_METERS;
+public class Boulder implements Pool.Poolable {
 
-public class Boulder {
+    public static final int SIZE = 75; // diameter in rendering coordinates, matching boulder.png
 
-    private static final int MIN_VELOCITY = 20;
-    private static final int MAX_ADDITIONAL_VELOCITY = 10;
-
-    private Texture wall;
-    private Texture boulder;
     private Vector2 position;
+    private Vector2 previousPosition; // position as of the previous fixed step, for interpolating between steps when rendering
     private Circle bounds;
+    private boolean active; // false while reset has taken its body out of the world
 
     private BodyDef boulderBodyDef;
     private Body boulderBody;
@@ -32,43 +30,41 @@ public class Boulder {
     private FixtureDef boulderFixtureDef;
     private Fixture boulderFixture;
 
-    // creates a boulder object with a random horizontal velocity at the specified coordinates
+    // creates a boulder object at rest at the specified coordinates. it gets its velocity when it is first dropped onto a platform
     public Boulder(float x, float y, World world) {
-        wall = new Texture("wall.png");
-        boulder = new Texture("boulder.png");
         position = new Vector2(x, y);
-        bounds = new Circle(position.x + boulder.getWidth() / 2, position.y + boulder.getHeight() / 2, boulder.getWidth() / 2);
+        previousPosition = new Vector2(x, y);
+        bounds = new Circle(position.x + SIZE / 2, position.y + SIZE / 2, SIZE / 2);
 
         // creating the boulder's physics body
         boulderBodyDef = new BodyDef();
         boulderBodyDef.type = BodyDef.BodyType.DynamicBody;
-        boulderBodyDef.position.set((position.x+boulder.getWidth()/2) * PIXELS_TO_METERS, (position.y+boulder.getHeight()/2) * PIXELS_TO_METERS); // convert pixel coordinates to physics boulder coodinates
+        boulderBodyDef.position.set((position.x+SIZE/2) * PIXELS_TO_METERS, (position.y+SIZE/2) * PIXELS_TO_METERS); // convert pixel coordinates to physics boulder coodinates
         boulderBody = world.createBody(boulderBodyDef);
         boulderCircle = new CircleShape();
-        boulderCircle.setRadius((boulder.getWidth()/2) * PIXELS_TO_METERS);
+        boulderCircle.setRadius((SIZE/2) * PIXELS_TO_METERS);
         boulderFixtureDef = new FixtureDef();
         boulderFixtureDef.shape = boulderCircle;
         boulderFixtureDef.density = 500000f; // giving it a very high density makes the boulder act like a kinematic body (in that the player's ball adds minimal momentum to the boulder on collisions) that is only affected by gravity
         boulderFixtureDef.friction = 0.0f;
         boulderFixture = boulderBody.createFixture(boulderFixtureDef);
         boulderBody.setUserData(this);
-        boulderBody.setLinearVelocity(MIN_VELOCITY + new Random().nextInt(MAX_ADDITIONAL_VELOCITY), 0);
+        active = true;
     }
 
     // creates a boulder object with a specified horizontal velocity at the specified coordinates
     public Boulder(float velocityX, float x, float y, World world) {
-        wall = new Texture("wall.png");
-        boulder = new Texture("boulder.png");
         position = new Vector2(x, y);
-        bounds = new Circle(position.x + boulder.getWidth() / 2, position.y + boulder.getHeight() / 2, boulder.getWidth() / 2);
+        previousPosition = new Vector2(x, y);
+        bounds = new Circle(position.x + SIZE / 2, position.y + SIZE / 2, SIZE / 2);
 
         // creating the boulder's physics body
         boulderBodyDef = new BodyDef();
         boulderBodyDef.type = BodyDef.BodyType.DynamicBody;
-        boulderBodyDef.position.set((position.x+boulder.getWidth()/2) * PIXELS_TO_METERS, (position.y+boulder.getHeight()/2) * PIXELS_TO_METERS); // convert pixel coordinates to physics boulder coodinates
+        boulderBodyDef.position.set((position.x+SIZE/2) * PIXELS_TO_METERS, (position.y+SIZE/2) * PIXELS_TO_METERS); // convert pixel coordinates to physics boulder coodinates
         boulderBody = world.createBody(boulderBodyDef);
         boulderCircle = new CircleShape();
-        boulderCircle.setRadius((boulder.getWidth()/2) * PIXELS_TO_METERS);
+        boulderCircle.setRadius((SIZE/2) * PIXELS_TO_METERS);
         boulderFixtureDef = new FixtureDef();
         boulderFixtureDef.shape = boulderCircle;
         boulderFixtureDef.density = 9999f; // giving it a very high density makes the boulder act like a kinematic body (in that the player's ball adds minimal momentum to the boulder on collisions) that is only affected by gravity
@@ -76,51 +72,81 @@ public class Boulder {
         boulderFixture = boulderBody.createFixture(boulderFixtureDef);
         boulderBody.setUserData(this);
         boulderBody.setLinearVelocity(velocityX, 0);
+        active = true;
     }
 
     public Vector2 getPosition() {
         return position;
     }
 
-    public Float getBodyLinearVelocityX() {
+    public float getBodyLinearVelocityX() {
         return boulderBody.getLinearVelocity().x;
     }
 
-    // reposition the boulder to the specified coordinates with a random velocity
-    public void reposition(float x, float y) {
-        position.set(x, y);
-        boulderBody.setTransform(new Vector2((position.x+boulder.getWidth()/2) * PIXELS_TO_METERS, (position.y+boulder.getHeight()/2) * PIXELS_TO_METERS), 0);
-        boulderBody.setLinearVelocity(MIN_VELOCITY + new Random().nextInt(MAX_ADDITIONAL_VELOCITY), 0);
-        bounds.setPosition(position.x + boulder.getWidth() / 2, position.y + boulder.getHeight() / 2);
+    // copies the body's position and velocity into state from offset on, 4 floats in meters, so restoreBody can undo steps that are run again
+    public void saveBody(float[] state, int offset) {
+        state[offset] = boulderBody.getPosition().x;
+        state[offset + 1] = boulderBody.getPosition().y;
+        state[offset + 2] = boulderBody.getLinearVelocity().x;
+        state[offset + 3] = boulderBody.getLinearVelocity().y;
+    }
+
+    public void restoreBody(float[] state, int offset) {
+        boulderBody.setTransform(state[offset], state[offset + 1], boulderBody.getAngle());
+        boulderBody.setLinearVelocity(state[offset + 2], state[offset + 3]);
     }
 
     // reposition the boulder to the specified coordinates with a specified velocity
     public void reposition(float x, float y, float velocity) {
         position.set(x, y);
-        boulderBody.setTransform(new Vector2((position.x+boulder.getWidth()/2) * PIXELS_TO_METERS, (position.y+boulder.getHeight()/2) * PIXELS_TO_METERS), 0);
+        boulderBody.setTransform((position.x+SIZE/2) * PIXELS_TO_METERS, (position.y+SIZE/2) * PIXELS_TO_METERS, 0);
         boulderBody.setLinearVelocity(velocity, 0);
-        bounds.setPosition(position.x + boulder.getWidth() / 2, position.y + boulder.getHeight() / 2);
+        bounds.setPosition(position.x + SIZE / 2, position.y + SIZE / 2);
+        previousPosition.set(position);
+        if (!active) {
+            boulderBody.setActive(true);
+            active = true;
+        }
     }
 
+    // takes the boulder out of the world until it is next repositioned, for keeping it in a Course between runs. can't be called during world.step
+    @Override
+    public void reset() {
+        boulderBody.setLinearVelocity(0, 0);
+        boulderBody.setAngularVelocity(0);
+        if (active) {
+            boulderBody.setActive(false);
+            active = false;
+        }
+    }
+
+    // moves the boulder dy up (or down, when negative) along with the rest of its course when the course is rebased, see Course.rebase. it keeps its velocity
+    public void shiftY(float dy) {
+        boulderBody.setTransform(boulderBody.getPosition().x, boulderBody.getPosition().y + dy * PIXELS_TO_METERS, boulderBody.getAngle());
+        position.y += dy;
+        previousPosition.y += dy;
+        bounds.setPosition(position.x + SIZE / 2, position.y + SIZE / 2);
+    }
 
+    // called once per fixed step
     public void update(float dt) {
-        position.set(boulderBody.getPosition().x/PIXELS_TO_METERS-boulder.getWidth()/2, boulderBody.getPosition().y/PIXELS_TO_METERS-boulder.getHeight()/2); // convert physics body coordinates back to render coordinates. keeps the boulder's physics body coordinates in sync with the render coordinates
-        if (position.x <= wall.getWidth()+3) { // if the boulder's position hits the left wall, then make the boulder move into the opposite direction
+        previousPosition.set(position);
+        position.set(boulderBody.getPosition().x/PIXELS_TO_METERS-SIZE/2, boulderBody.getPosition().y/PIXELS_TO_METERS-SIZE/2); // convert physics body coordinates back to render coordinates. keeps the boulder's physics body coordinates in sync with the render coordinates
+        if (position.x <= WALL_WIDTH+3) { // if the boulder's position hits the left wall, then make the boulder move into the opposite direction
             boulderBody.setLinearVelocity(-boulderBody.getLinearVelocity().x, boulderBody.getLinearVelocity().y);
         }
-        if (position.x + boulder.getWidth() >= Yikes.WIDTH - wall.getWidth()-3) { // if the boulder's position hits the right wall, then make the boulder move into the opposite direction
+        if (position.x + SIZE >= WIDTH - WALL_WIDTH-3) { // if the boulder's position hits the right wall, then make the boulder move into the opposite direction
             boulderBody.setLinearVelocity(-boulderBody.getLinearVelocity().x, boulderBody.getLinearVelocity().y);
         }
-        bounds.setPosition(position.x + boulder.getWidth() / 2, position.y + boulder.getHeight() / 2);
+        bounds.setPosition(position.x + SIZE / 2, position.y + SIZE / 2);
     }
 
-    public void render(SpriteBatch sb) {
-        sb.draw(boulder, position.x, position.y);
+    // draws the boulder between its previous and current step positions, alpha being how far the frame is between the two steps
+    public void render(RenderList list, TextureRegion boulder, float alpha) {
+        list.add(boulder, previousPosition.x + (position.x - previousPosition.x) * alpha, previousPosition.y + (position.y - previousPosition.y) * alpha, RenderList.LAYER_PLATFORMS);
     }
 
     public void dispose() {
-        wall.dispose();
-        boulder.dispose();
         boulderCircle.dispose();
     }
 }
@@ -1,32 +1,33 @@
 package com.sodirea.yikes.sprites;
 
-import com.badlogic.gdx.graphics.Texture;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.physics.box2d.PolygonShape;
 import com.badlogic.gdx.physics.box2d.World;
-import com.sodirea.yikes.Yikes;
+import com.badlogic.gdx.utils.Pool;
+import com.sodirea.yikes.sim.LevelGenerator;
 
-import java.util.Random;
+import static com.sodirea.yikes.sim.Simulation.PIXELS_TO_METERS;
+import static com.sodirea.yikes.sim.Simulation.WIDTH;
 
-import static com.sodirea.yikes.states.PlayState.PIXELS_TO_METERS;
-
-public class Platform {
+public class Platform implements Pool.Poolable {
 
     public static final int MIN_HOLE_WIDTH = 120;
     public static final int MAX_ADDITIONAL_HOLE_WIDTH = 60;
+    public static final int SEGMENT_WIDTH = 480; // width of each half of the platform, matching platform.png
+    public static final int HEIGHT = 30;
 
     private int holeWidth;
-    private Random xGenerator;
-    private Texture platform;
     private Vector2 position;
+    private Vector2 previousPosition; // position as of the previous fixed step, for interpolating the closing of the hole when rendering
     private Rectangle bounds1;
     private Rectangle bounds2;
     private boolean isCleared; // true when the player's foot sensor contacts the platform
     private boolean bridgePlaced; // true when the platform's hole is "bridged", i.e. has no hole (after they clear the platform)
+    private boolean active; // false while reset has taken its bodies out of the world
 
     private BodyDef platformBodyDef;
     private Body platformBody;
@@ -36,64 +37,37 @@ public class Platform {
     private Body platformBody2;
     private PolygonShape platformBox2;
 
-    // creates a platform object at a position y with a random hole width and a random x position
-    public Platform(float y, World world) {
-        xGenerator = new Random();
-        holeWidth = MIN_HOLE_WIDTH + xGenerator.nextInt(MAX_ADDITIONAL_HOLE_WIDTH);
-        platform = new Texture("platform.png");
-        position = new Vector2(xGenerator.nextInt(Yikes.WIDTH - holeWidth), y);
-        bounds1 = new Rectangle(position.x - platform.getWidth(), position.y, platform.getWidth(), platform.getHeight());
-        bounds2 = new Rectangle(position.x + holeWidth, position.y, platform.getWidth(), platform.getHeight());
-        isCleared = false;
-        bridgePlaced = false;
-
-        // creating the physics body for the platform to the left of the hole
-        platformBodyDef = new BodyDef();
-        platformBodyDef.position.set((position.x-platform.getWidth()/2)*PIXELS_TO_METERS, (position.y+platform.getHeight()/2)*PIXELS_TO_METERS);
-        platformBody = world.createBody(platformBodyDef);
-        platformBox = new PolygonShape();
-        platformBox.setAsBox(platform.getWidth() / 2 * PIXELS_TO_METERS, platform.getHeight() / 2 * PIXELS_TO_METERS);
-        platformBody.createFixture(platformBox, 0.0f);
-        platformBody.setUserData(this);
-
-        // creating the physics body for the platform to the right of the hole
-        platformBodyDef2 = new BodyDef();
-        platformBodyDef2.position.set((position.x+platform.getWidth()/2+holeWidth)*PIXELS_TO_METERS, (position.y+platform.getHeight()/2)*PIXELS_TO_METERS);
-        platformBody2 = world.createBody(platformBodyDef2);
-        platformBox2 = new PolygonShape();
-        platformBox2.setAsBox(platform.getWidth() / 2 * PIXELS_TO_METERS, platform.getHeight() / 2 * PIXELS_TO_METERS);
-        platformBody2.createFixture(platformBox2, 0.0f);
-        platformBody2.createFixture(platformBox2, 0.0f);
-        platformBody2.setUserData(this);
-
+    // creates a platform object in the given row of the level
+    public Platform(LevelGenerator level, int row, World world) {
+        this(level.holeX(row), LevelGenerator.rowY(row), level.holeWidth(row), world);
     }
 
     // creates a platform object at the specified coordinates with the specified hole width
     public Platform(float x, float y, int width, World world) {
-        xGenerator = new Random();
         holeWidth = width;
-        platform = new Texture("platform.png");
         position = new Vector2(x, y);
-        bounds1 = new Rectangle(position.x - platform.getWidth(), position.y, platform.getWidth(), platform.getHeight());
-        bounds2 = new Rectangle(position.x + holeWidth, position.y, platform.getWidth(), platform.getHeight());
+        previousPosition = new Vector2(position);
+        bounds1 = new Rectangle(position.x - SEGMENT_WIDTH, position.y, SEGMENT_WIDTH, HEIGHT);
+        bounds2 = new Rectangle(position.x + holeWidth, position.y, SEGMENT_WIDTH, HEIGHT);
         isCleared = false;
         bridgePlaced = false;
+        active = true;
 
         // creating the physics body for the platform to the left of the hole
         platformBodyDef = new BodyDef();
-        platformBodyDef.position.set((position.x-platform.getWidth()/2)*PIXELS_TO_METERS, (position.y+platform.getHeight()/2)*PIXELS_TO_METERS);
+        platformBodyDef.position.set((position.x-SEGMENT_WIDTH/2)*PIXELS_TO_METERS, (position.y+HEIGHT/2)*PIXELS_TO_METERS);
         platformBody = world.createBody(platformBodyDef);
         platformBox = new PolygonShape();
-        platformBox.setAsBox(platform.getWidth() / 2 * PIXELS_TO_METERS, platform.getHeight() / 2 * PIXELS_TO_METERS);
+        platformBox.setAsBox(SEGMENT_WIDTH / 2 * PIXELS_TO_METERS, HEIGHT / 2 * PIXELS_TO_METERS);
         platformBody.createFixture(platformBox, 0.0f);
         platformBody.setUserData(this);
 
         // creating the physics body for the platform to the right of the hole
         platformBodyDef2 = new BodyDef();
-        platformBodyDef2.position.set((position.x+platform.getWidth()/2+holeWidth)*PIXELS_TO_METERS, (position.y+platform.getHeight()/2)*PIXELS_TO_METERS);
+        platformBodyDef2.position.set((position.x+SEGMENT_WIDTH/2+holeWidth)*PIXELS_TO_METERS, (position.y+HEIGHT/2)*PIXELS_TO_METERS);
         platformBody2 = world.createBody(platformBodyDef2);
         platformBox2 = new PolygonShape();
-        platformBox2.setAsBox(platform.getWidth() / 2 * PIXELS_TO_METERS, platform.getHeight() / 2 * PIXELS_TO_METERS);
+        platformBox2.setAsBox(SEGMENT_WIDTH / 2 * PIXELS_TO_METERS, HEIGHT / 2 * PIXELS_TO_METERS);
         platformBody2.createFixture(platformBox2, 0.0f);
         platformBody2.createFixture(platformBox2, 0.0f);
         platformBody2.setUserData(this);
@@ -108,32 +82,45 @@ public class Platform {
         return position;
     }
 
-    public Texture getTexture() {
-        return platform;
-    }
-
-    // repositions a platform to the specified y coordinate
-    public void reposition(float y) {
+    // repositions a platform to the specified coordinates with the specified hole width
+    public void reposition(float x, float y, int width) {
         isCleared = false;
         bridgePlaced = false;
-        holeWidth = MIN_HOLE_WIDTH + xGenerator.nextInt(MAX_ADDITIONAL_HOLE_WIDTH);
-        position.set(xGenerator.nextInt(Yikes.WIDTH - holeWidth), y);
-        bounds1.setPosition(position.x - platform.getWidth(), position.y);
+        holeWidth = width;
+        position.set(x, y);
+        previousPosition.set(position);
+        bounds1.setPosition(position.x - SEGMENT_WIDTH, position.y);
         bounds2.setPosition(position.x + holeWidth, position.y);
-        platformBody.setTransform(new Vector2((position.x-platform.getWidth()/2)*PIXELS_TO_METERS, (position.y+platform.getHeight()/2)*PIXELS_TO_METERS), 0);
-        platformBody2.setTransform(new Vector2((position.x+platform.getWidth()/2+holeWidth)*PIXELS_TO_METERS, (position.y+platform.getHeight()/2)*PIXELS_TO_METERS), 0);
+        platformBody.setTransform((position.x-SEGMENT_WIDTH/2)*PIXELS_TO_METERS, (position.y+HEIGHT/2)*PIXELS_TO_METERS, 0);
+        platformBody2.setTransform((position.x+SEGMENT_WIDTH/2+holeWidth)*PIXELS_TO_METERS, (position.y+HEIGHT/2)*PIXELS_TO_METERS, 0);
+        if (!active) {
+            platformBody.setActive(true);
+            platformBody2.setActive(true);
+            active = true;
+        }
     }
 
-    // repositions a platform to the specified coordinates with the specified hole width
-    public void reposition(float x, float y, int width) {
+    // takes the platform out of the world until it is next repositioned, for keeping it in a Course between runs. can't be called during world.step
+    @Override
+    public void reset() {
         isCleared = false;
         bridgePlaced = false;
-        holeWidth = width;
-        position.set(x, y);
-        bounds1.setPosition(position.x - platform.getWidth(), position.y);
+        if (active) {
+            platformBody.setActive(false);
+            platformBody2.setActive(false);
+            active = false;
+        }
+    }
+
+    // moves the platform dy up (or down, when negative) along with the rest of its course when the course is rebased, see Course.rebase. a hole that is
+    // closing carries on closing
+    public void shiftY(float dy) {
+        position.y += dy;
+        previousPosition.y += dy;
+        bounds1.setPosition(position.x - SEGMENT_WIDTH, position.y);
         bounds2.setPosition(position.x + holeWidth, position.y);
-        platformBody.setTransform(new Vector2((position.x-platform.getWidth()/2)*PIXELS_TO_METERS, (position.y+platform.getHeight()/2)*PIXELS_TO_METERS), 0);
-        platformBody2.setTransform(new Vector2((position.x+platform.getWidth()/2+holeWidth)*PIXELS_TO_METERS, (position.y+platform.getHeight()/2)*PIXELS_TO_METERS), 0);
+        platformBody.setTransform(platformBody.getPosition().x, platformBody.getPosition().y + dy * PIXELS_TO_METERS, 0);
+        platformBody2.setTransform(platformBody2.getPosition().x, platformBody2.getPosition().y + dy * PIXELS_TO_METERS, 0);
     }
 
     public void cleared() {
@@ -144,31 +131,34 @@ public class Platform {
         return isCleared;
     }
 
+    // called once per fixed step
     public void update(float dt) {
-        bounds1.setPosition(position.x - platform.getWidth(), position.y);
+        previousPosition.set(position);
+        bounds1.setPosition(position.x - SEGMENT_WIDTH, position.y);
         bounds2.setPosition(position.x + holeWidth, position.y);
         // when they clear the platform, close the hole
         if (isCleared) {
             // visually closing the hole by modifying render coordinates
-            if (position.x < Yikes.WIDTH / 2 && position.x != -holeWidth) { // hole is closer to left, so move right platform over to left side to "bridge" the gap
+            if (position.x < WIDTH / 2 && position.x != -holeWidth) { // hole is closer to left, so move right platform over to left side to "bridge" the gap
                 position.x -= (position.x + holeWidth) / 10;
-            } else if (position.x >= Yikes.WIDTH / 2 && position.x != Yikes.WIDTH) {
-                position.x += (Yikes.WIDTH - position.x) / 10;
+            } else if (position.x >= WIDTH / 2 && position.x != WIDTH) {
+                position.x += (WIDTH - position.x) / 10;
             }
             // closing the hole in the physics world by modifying the platform's physics body's coordinates
             if (!bridgePlaced) {
-                platformBody.setTransform(new Vector2(platformBody2.getPosition().x-platform.getWidth()*PIXELS_TO_METERS, (position.y + platform.getHeight() / 2) * PIXELS_TO_METERS), 0);
+                platformBody.setTransform(platformBody2.getPosition().x-SEGMENT_WIDTH*PIXELS_TO_METERS, (position.y + HEIGHT / 2) * PIXELS_TO_METERS, 0);
             }
         }
     }
 
-    public void render(SpriteBatch sb) {
-        sb.draw(platform, position.x - platform.getWidth(), position.y);
-        sb.draw(platform, position.x + holeWidth, position.y);
+    // draws both halves of the platform between their previous and current step positions
+    public void render(RenderList list, TextureRegion platform, float alpha) {
+        float x = previousPosition.x + (position.x - previousPosition.x) * alpha;
+        list.add(platform, x - SEGMENT_WIDTH, position.y, RenderList.LAYER_PLATFORMS);
+        list.add(platform, x + holeWidth, position.y, RenderList.LAYER_PLATFORMS);
     }
 
     public void dispose() {
-        platform.dispose();
         platformBox.dispose();
         platformBox2.dispose();
     }
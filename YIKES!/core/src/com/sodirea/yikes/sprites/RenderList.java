@@ -0,0 +1,112 @@
+package com.sodirea.yikes.sprites;
+
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Frustum;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+
+import java.util.Comparator;
+
+// the sprites a state draws in a frame, collected before they reach the SpriteBatch. add() drops anything outside the camera's frustum, so parked boulders,
+// the ground far below and remote balls off screen cost nothing on the GPU, and draw() sorts the rest by layer, then by texture within a layer, so sprites
+// sharing an atlas page go out together without the batch flushing in between. entries are reused from frame to frame, so a frame allocates nothing
+public class RenderList {
+
+    public static final int LAYER_BACKGROUND = 0;
+    public static final int LAYER_SCENERY = 1; // ground and walls
+    public static final int LAYER_BALLS = 2;
+    public static final int LAYER_PLATFORMS = 3; // platforms and boulders, drawn over the balls
+    public static final int CAPACITY = 64; // more sprites than any state ever has in view, made up front so a new most-in-view doesn't allocate mid-game
+
+    private static class Entry {
+        TextureRegion region;
+        float x;
+        float y;
+        int layer;
+        int texture; // the texture's GL handle, to sort by
+    }
+
+    private final Pool<Entry> pool;
+    private final Array<Entry> visible;
+    private final Comparator<Entry> order;
+    private Frustum frustum;
+    private int drawn;
+    private int culled;
+
+    public RenderList() {
+        pool = new Pool<Entry>(CAPACITY) {
+            @Override
+            protected Entry newObject() {
+                return new Entry();
+            }
+        };
+        visible = new Array<Entry>(CAPACITY);
+        for (int i = 0; i < CAPACITY; i++) {
+            visible.add(pool.obtain());
+        }
+        pool.freeAll(visible);
+        visible.clear();
+        order = new Comparator<Entry>() {
+            @Override
+            public int compare(Entry a, Entry b) {
+                if (a.layer != b.layer) {
+                    return a.layer < b.layer ? -1 : 1;
+                }
+                if (a.texture != b.texture) {
+                    return a.texture < b.texture ? -1 : 1;
+                }
+                return 0; // the sort is stable, so sprites on the same layer and texture keep the order they were added in
+            }
+        };
+        drawn = 0;
+        culled = 0;
+    }
+
+    // starts a frame seen through cam, which has to be updated to where the frame is drawn from
+    public void begin(OrthographicCamera cam) {
+        pool.freeAll(visible);
+        visible.clear();
+        frustum = cam.frustum;
+        culled = 0;
+    }
+
+    // queues region to be drawn at x, y on the given layer, unless none of it is in view. returns whether it was queued
+    public boolean add(TextureRegion region, float x, float y, int layer) {
+        float halfWidth = region.getRegionWidth() / 2f;
+        float halfHeight = region.getRegionHeight() / 2f;
+        if (!frustum.boundsInFrustum(x + halfWidth, y + halfHeight, 0, halfWidth, halfHeight, 0)) {
+            culled++;
+            return false;
+        }
+        Entry entry = pool.obtain();
+        entry.region = region;
+        entry.x = x;
+        entry.y = y;
+        entry.layer = layer;
+        entry.texture = region.getTexture().getTextureObjectHandle();
+        visible.add(entry);
+        return true;
+    }
+
+    // draws everything queued since begin, in layer and texture order. sb has to be begun already
+    public void draw(SpriteBatch sb) {
+        visible.sort(order);
+        for (int i = 0; i < visible.size; i++) {
+            Entry entry = visible.get(i);
+            sb.draw(entry.region, entry.x, entry.y);
+        }
+        drawn = visible.size;
+    }
+
+    // sprites drawn in the last frame
+    public int getDrawn() {
+        return drawn;
+    }
+
+    // sprites left out of the last frame for being out of view
+    public int getCulled() {
+        return culled;
+    }
+}
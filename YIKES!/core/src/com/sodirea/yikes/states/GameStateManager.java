@@ -1,16 +1,77 @@
 package com.sodirea.yikes.states;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.utils.Array;
+import com.sodirea.yikes.assets.Assets;
+import com.sodirea.yikes.settings.Settings;
+import com.sodirea.yikes.sim.CoursePool;
+import com.sodirea.yikes.sprites.RenderList;
 
 import java.util.Stack;
 
 public class GameStateManager {
 
+    public static final int LOAD_SLICE_MILLIS = 4; // how much of each frame goes to loading what was prepared, a quarter of a 60 fps frame
+
     private Stack<State> states;
+    private Assets assets;
+    private Settings settings;
+    private CoursePool courses;
+    private RenderList renderList;
+    private Array<String> prepared; // assets held for the next state, until set() has built it
+    private int preparedCourses; // how many free courses the next state wants waiting for it
+    private boolean coursesReady;
 
     // creates a GameStateManager object, which uses a stack to keep track of active states, and display them as required
-    public GameStateManager() {
+    public GameStateManager(Assets assets, Settings settings) {
         states = new Stack<State>();
+        this.assets = assets;
+        this.settings = settings;
+        courses = new CoursePool();
+        renderList = new RenderList();
+        prepared = new Array<String>();
+        preparedCourses = 0;
+        coursesReady = true;
+    }
+
+    public Assets getAssets() {
+        return assets;
+    }
+
+    public Settings getSettings() {
+        return settings;
+    }
+
+    // the Box2D courses states play on. a state frees its course back here when it is disposed
+    public CoursePool getCourses() {
+        return courses;
+    }
+
+    // where states queue their sprites each frame, so what is out of view never reaches the batch
+    public RenderList getRenderList() {
+        return renderList;
+    }
+
+    // starts loading an asset the next state will need, a slice each frame in update(), and holds it until set() has built that state, so building it finds
+    // the asset loaded instead of decoding it on the spot. call it from a state's update, not its constructor: anything prepared before set() is let go
+    // once the state it was given is pushed
+    public void prepare(String fileName, Class<?> type) {
+        if (!prepared.contains(fileName, false)) {
+            assets.preload(fileName, type);
+            prepared.add(fileName);
+        }
+    }
+
+    // has a free course built for the next state in a later update(), so obtaining one doesn't build a Box2D world on the spot
+    public void prepareCourse() {
+        preparedCourses = 1;
+        coursesReady = false;
+    }
+
+    // whether everything prepared so far is loaded and built
+    public boolean isPrepared() {
+        return !assets.isLoading() && coursesReady;
     }
 
     public void push(State state) {
@@ -21,17 +82,25 @@ public class GameStateManager {
         states.pop().dispose();
     }
 
+    // the new state is constructed before the old one is disposed, so any assets they share stay loaded across the transition. what was prepared for it is
+    // let go once it is in, since it holds its own references by then
     public void set(State state) {
         states.pop().dispose();
         states.push(state);
+        releasePrepared();
+        Gdx.app.debug("Assets", "hits: " + assets.getHits() + ", misses: " + assets.getMisses() + ", resident bytes: " + assets.getResidentBytes());
     }
 
     public State peek() {
         return states.peek();
     }
 
-    // updates the top-most state in our stack
+    // loads a slice of whatever was prepared, then updates the top-most state in our stack
     public void update(float dt) {
+        assets.update(LOAD_SLICE_MILLIS);
+        if (!coursesReady) {
+            coursesReady = courses.prepare(preparedCourses);
+        }
         states.peek().update(dt);
     }
 
@@ -40,4 +109,21 @@ public class GameStateManager {
         states.peek().render(sb);
     }
 
+    // disposes every state left on the stack, returning their assets to the cache, and then every course they played on
+    public void dispose() {
+        while (!states.isEmpty()) {
+            states.pop().dispose();
+        }
+        releasePrepared();
+        courses.dispose();
+    }
+
+    private void releasePrepared() {
+        for (int i = 0; i < prepared.size; i++) {
+            assets.release(prepared.get(i));
+        }
+        prepared.clear();
+        preparedCourses = 0;
+        coursesReady = true;
+    }
 }
@@ -0,0 +1,68 @@
+package com.sodirea.yikes.states;
+
+import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.sodirea.yikes.Yikes;
+import com.sodirea.yikes.assets.Assets;
+
+// the first state on a cold start. it prepares everything the menu needs through the GameStateManager, which loads it a slice per frame, and draws a progress
+// bar with a ShapeRenderer in the meantime, since that needs nothing loaded. the first frame is on screen straight away instead of after the atlas, the sounds
+// and a Box2D world have all been built in one go, and the menu it hands over to is built from what is already loaded
+public class LoadingState extends State {
+
+    private static final float BAR_WIDTH = Yikes.WIDTH * 2 / 3f;
+    private static final float BAR_HEIGHT = 12;
+
+    private ShapeRenderer shapes;
+    private BitmapFont squrave; // parsed in a frame of its own once the atlas its pages are in has loaded
+
+    public LoadingState(GameStateManager gsm) {
+        super(gsm);
+        cam.setToOrtho(false, Yikes.WIDTH, Yikes.HEIGHT);
+        shapes = new ShapeRenderer();
+        // pushed rather than set, so preparing here is fine: it is let go when this state sets the menu
+        gsm.prepare(Assets.ATLAS, TextureAtlas.class);
+        gsm.prepare("menuclick.wav", Sound.class);
+        gsm.prepareCourse();
+    }
+
+    @Override
+    protected void handleInput() {
+    }
+
+    @Override
+    public void update(float dt) {
+        if (!gsm.isPrepared()) {
+            return;
+        }
+        if (squrave == null) {
+            squrave = assets.getFont("squrave.fnt");
+            return;
+        }
+        gsm.set(new MenuState(gsm));
+    }
+
+    @Override
+    public void render(SpriteBatch sb) {
+        float x = (cam.viewportWidth - BAR_WIDTH) / 2;
+        float y = (cam.viewportHeight - BAR_HEIGHT) / 2;
+        shapes.setProjectionMatrix(cam.combined);
+        shapes.begin(ShapeRenderer.ShapeType.Filled);
+        shapes.setColor(0.5f, 0, 0, 1);
+        shapes.rect(x, y, BAR_WIDTH, BAR_HEIGHT);
+        shapes.setColor(1, 1, 1, 1);
+        shapes.rect(x, y, BAR_WIDTH * assets.getProgress(), BAR_HEIGHT);
+        shapes.end();
+    }
+
+    @Override
+    public void dispose() {
+        shapes.dispose();
+        if (squrave != null) {
+            assets.release("squrave.fnt");
+        }
+    }
+}
@@ -2,164 +2,168 @@ package com.sodirea.yikes.states;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.audio.Sound;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
-import com.badlogic.gdx.physics.box2d.Box2D;
 import com.badlogic.gdx.physics.box2d.Contact;
 import com.badlogic.gdx.physics.box2d.ContactImpulse;
 import com.badlogic.gdx.physics.box2d.ContactListener;
-import com.badlogic.gdx.physics.box2d.Fixture;
-import com.badlogic.gdx.physics.box2d.FixtureDef;
 import com.badlogic.gdx.physics.box2d.Manifold;
-import com.badlogic.gdx.physics.box2d.PolygonShape;
 import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.sodirea.yikes.Yikes;
+import com.sodirea.yikes.assets.Assets;
+import com.sodirea.yikes.net.ClockSync;
+import com.sodirea.yikes.net.DatagramTransport;
+import com.sodirea.yikes.net.InputBuffer;
+import com.sodirea.yikes.net.NetEvent;
+import com.sodirea.yikes.net.NetEventQueue;
+import com.sodirea.yikes.net.PacketReader;
+import com.sodirea.yikes.net.PacketWriter;
+import com.sodirea.yikes.net.Protocol;
+import com.sodirea.yikes.net.SnapshotBuffer;
+import com.sodirea.yikes.net.SnapshotHistory;
+import com.sodirea.yikes.net.SocketIOTransport;
+import com.sodirea.yikes.net.Transport;
+import com.sodirea.yikes.net.WorldSnapshot;
+import com.sodirea.yikes.sim.Course;
+import com.sodirea.yikes.sim.InputCommand;
+import com.sodirea.yikes.sim.LevelGenerator;
+import com.sodirea.yikes.sim.PhysicsClock;
+import com.sodirea.yikes.sim.Player;
+import com.sodirea.yikes.sim.Simulation;
 import com.sodirea.yikes.sprites.Ball;
 import com.sodirea.yikes.sprites.Boulder;
 import com.sodirea.yikes.sprites.Platform;
+import com.sodirea.yikes.sprites.RenderList;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.HashMap;
-import java.util.Random;
-
-import io.socket.client.IO;
-import io.socket.client.Socket;
-import io.socket.emitter.Emitter;
-
-import static com.sodirea.yikes.states.PlayState.GRAVITY;
-import static com.sodirea.yikes.states.PlayState.NUM_PLATFORMS;
-import static com.sodirea.yikes.states.PlayState.PIXELS_TO_METERS;
-import static com.sodirea.yikes.states.PlayState.PLATFORM_INTERVALS;
-import static com.sodirea.yikes.states.PlayState.TIME_STEP;
-
-public class MultiplayerState extends State {
-
-    private final float UPDATE_TIME = 1/20f;
-    private float timer;
-    private Socket socket;
-
-    private Texture bg;
-    private Texture ground;
-    private Texture wall;
-    private Texture ballTexture;
+import java.net.URI;
+
+import static com.sodirea.yikes.sim.Simulation.NUM_PLATFORMS;
+import static com.sodirea.yikes.sim.Simulation.PIXELS_TO_METERS;
+import static com.sodirea.yikes.sim.Simulation.PLATFORM_INTERVALS;
+import static com.sodirea.yikes.sim.Simulation.SCROLL_GROWTH_PER_STEP;
+import static com.sodirea.yikes.sim.Simulation.TIME_STEP;
+
+public class MultiplayerState extends State implements NetEventQueue.Handler {
+
+    public static final String DEFAULT_SERVER_URL = "https://blooming-reef-86477.herokuapp.com";
+    public static final float DEFAULT_INTERPOLATION_DELAY = 0.1f; // two server broadcasts behind, so one late update still leaves a snapshot to interpolate towards
+    public static final int STEPS_PER_INPUT_MESSAGE = 3; // send our inputs 20 times a second, the rate the server sends states back
+    public static final int INPUT_HISTORY_CAPACITY = 128; // two seconds of steps waiting for the server to acknowledge them, far beyond any playable round trip
+    public static final float RECONCILE_TOLERANCE = 2f; // how far, in rendering units, our prediction can be from the server's ball before it is corrected
+    public static final int INPUT_REDUNDANCY = 32; // the most unacknowledged inputs an input message repeats, half a second of steps
+    public static final int SNAPSHOT_HISTORY = 32; // as many as the server keeps, so any baseline it still has, we have too
+    public static final int ROOM_SIZE = 8; // the most players the server puts in a room. snapshots grow if it ever sends more
+    public static final float PING_INTERVAL = 2f; // seconds between clock sync pings once the clock is synchronized
+    public static final float FAST_PING_INTERVAL = 0.2f; // until then, so it is ready well before anyone can start the camera
+    public static final int EVENT_QUEUE_CAPACITY = 256; // enough for everything sent on joining a full room, with lots of room for a few slow frames
+    public static final int CONTROL_EVENTS_RESERVED = ROOM_SIZE * 2; // kept for the events that can't be dropped, a full room joining and leaving
+    private static final float REMOTE_VELOCITY_SCALE = TIME_STEP / PhysicsClock.STEP_INTERVAL / PIXELS_TO_METERS; // received velocities are in meters per simulated second, and every real step simulates only TIME_STEP seconds
+
+    private Transport transport;
+    private PacketWriter writer; // encodes outgoing binary messages on the render thread
+    private PacketReader reader; // decodes incoming binary messages on the transport's thread
+    private SnapshotHistory snapshots; // the latest world snapshots received, which the server encodes the next ones against. only used on the transport's thread
+    private WorldSnapshot decodedSnapshot; // where a worldState is decoded before it goes into snapshots, since it may be encoded against the one it would replace
+    private volatile int lastSnapshot; // the newest snapshot received, acknowledged with every input message
+    private NetEventQueue events; // every message from the server goes through here, so all the state below is only touched on the render thread
+    private long reportedDrops;
+
+    private TextureAtlas atlas;
+    private TextureRegion bg;
+    private TextureRegion ground;
+    private TextureRegion wall;
+    private TextureRegion ballRegion;
+    private TextureRegion platformRegion;
+    private TextureRegion boulderRegion;
     private Sound jump;
     private Sound gameover;
     private float totalTimePassed;
-    private boolean startCamera;
+    private float scrollSpeedMultiplier; // 1.02 to the power of totalTimePassed
+    private boolean startCamera; // true once the camera is scrolling
+    private boolean cameraRequested; // whether we asked the server to start the camera
+    private long cameraStartStep; // the server step the camera starts scrolling on, -1 until the server says
+    private PhysicsClock clock;
+    private ClockSync serverClock; // the round trip to the server and the offset to its clock, filled in by clockPong
+    private float nextPingTime;
+    private float stepTime; // the time on now()'s clock that the step being run stands for
+    private float previousCameraY; // camera height as of the previous fixed step, for interpolating the scroll when rendering
     private boolean resetState;
-    private Vector2 lastSentPosition;
-    private float displacementFromLastSentPosition;
 
+    private LevelGenerator level; // the room's course, null until the server sends its seed
     private Array<Platform> platformArray;
-    private Array<Vector2> platformPositionArray;
-    private Array<Integer> platformWidthArray;
-    private boolean needsPlatforms;
-    private int toRepositionIndex;
-    private boolean giveServerPositionCoordinates;
-
     private Array<Boulder> boulderArray;
-    private Array<Float> boulderVelocityArray;
-    private Array<Vector2> boulderPositionArray;
-    private Random boulderGenerator;
-    private boolean needsBoulders;
-    private boolean toRepositionBoulder;
 
+    private Course course;
     private World world;
 
-    private BodyDef groundBodyDef;
-    private Body groundBody;
-    private PolygonShape groundBox;
-
-    private BodyDef wallBodyDef;
-    private Body wallBody;
-    private PolygonShape wallBox;
-    private FixtureDef wallFixtureDef;
-    private Fixture wallFixture;
-
-    private BodyDef wallBodyDef2;
-    private Body wallBody2;
-    private PolygonShape wallBox2;
-    private FixtureDef wallFixtureDef2;
-    private Fixture wallFixture2;
-
     private Ball player;
+    private Player localPlayer; // runs our inputs on player with the same rules as the server, so we see them straight away instead of a round trip later
+    private InputBuffer inputHistory; // our inputs the server hasn't acknowledged yet, with where player ended up after each
+    private int nextInputSequence;
+    private int unsentInputs; // how many of the newest inputs in inputHistory haven't been sent yet
+    private float[] boulderStates; // the boulders' bodies while reconcile re-runs steps, see Boulder.saveBody
     private boolean playerIsDead;
     private boolean playerConnected;
-    private HashMap<String, Ball> otherPlayers;
-    private HashMap<String, Vector2> otherPlayersPosition;
-    private HashMap<String, Vector2> otherPlayersVelocity;
+    private ObjectMap<String, Ball> otherPlayers; // kinematic balls that only follow otherPlayersSnapshots
+    private ObjectMap<String, SnapshotBuffer> otherPlayersSnapshots;
+    private Vector2 sampledPosition;
+    private long startTime; // TimeUtils.nanoTime() when the state was created, which snapshot times count from
+    private float interpolationDelay; // how far in the past other players are drawn, in seconds
+    private float remoteTime; // the time other players are being drawn at, interpolationDelay behind now()
+    private IntMap<String> otherPlayersIds; // the server's small player numbers, which stand for session ids in binary messages
 
     public MultiplayerState(GameStateManager gsm) {
         super(gsm);
-        bg = new Texture("bg.png");
-        ground = new Texture("ground.png");
-        wall = new Texture("wall.png");
-        ballTexture = new Texture("ball.png");
-        jump = Gdx.audio.newSound(Gdx.files.internal("jump.mp3"));
-        gameover = Gdx.audio.newSound(Gdx.files.internal("gameover.wav"));
+        atlas = assets.getAtlas();
+        bg = atlas.findRegion("bg");
+        ground = atlas.findRegion("ground");
+        wall = atlas.findRegion("wall");
+        ballRegion = atlas.findRegion("ball");
+        platformRegion = atlas.findRegion("platform");
+        boulderRegion = atlas.findRegion("boulder");
+        jump = assets.getSound("jump.mp3");
+        gameover = assets.getSound("gameover.wav");
 
         resetState = false;
-        displacementFromLastSentPosition = 0f;
-        lastSentPosition = new Vector2(cam.position.x - ballTexture.getWidth() / 2, ground.getHeight());
         playerIsDead = false;
         totalTimePassed = 0;
+        scrollSpeedMultiplier = 1;
         startCamera = false;
+        cameraRequested = false;
+        cameraStartStep = -1;
 
-        platformArray = new Array<Platform>();
-        platformPositionArray = new Array<Vector2>();
-        platformWidthArray = new Array<Integer>();
-        needsPlatforms = true;
-        toRepositionIndex = -1; // if it is not -1, then a platform needs to be repositioned
-        giveServerPositionCoordinates = false;
-
+        platformArray = new Array<Platform>(); // the course's once the server sends the room's seed
         boulderArray = new Array<Boulder>();
-        boulderVelocityArray = new Array<Float>();
-        boulderPositionArray = new Array<Vector2>();
-        boulderGenerator = new Random();
-        needsBoulders = true;
-        toRepositionBoulder = false;
         cam.setToOrtho(false, Yikes.WIDTH, Yikes.HEIGHT);
+        clock = new PhysicsClock();
+        serverClock = new ClockSync();
+        nextPingTime = 0;
+        previousCameraY = cam.position.y;
 
-        Box2D.init();
-        world = new World(new Vector2(0, GRAVITY), true);
+        course = gsm.getCourses().obtain(); // its platforms stay out of the world until the server sends the room's seed
+        world = course.getWorld();
         world.setContactListener(new ContactListener() {
             @Override
             public void beginContact(Contact contact) {
-                if (contact.getFixtureA().getBody() != null && contact.getFixtureB().getBody().getUserData() != null) {
-                    // if the foot sensor fixture of the ball touches a platform, and the lowest point of the ball is higher than the highest point of the touched platform, then clear the platform
-                    if (contact.getFixtureA().getBody().getUserData() == player || contact.getFixtureB().getBody().getUserData() == player) {
-                        player.addNumberOfFootContacts(); // add to the total number of contact points
-                        Platform platform = null;
-                        if (contact.getFixtureA().getBody().getUserData() instanceof Platform) {
-                            platform = (Platform) contact.getFixtureA().getBody().getUserData();
-                        } else if (contact.getFixtureB().getBody().getUserData() instanceof Platform) {
-                            platform = (Platform) contact.getFixtureB().getBody().getUserData();
-                        }
-                        if (platform != null && player.getPosition().y > platform.getPosition().y + platform.getTexture().getHeight() && !platform.getIsCleared()) {
-                            if (!startCamera) {
-                                startCamera = true;
-                                socket.emit("startCamera"); // make camera start for every player
-                                giveServerPositionCoordinates = true; // the first player to step on a platform will give the server coordinates to determine when to reposition platforms
-                            }
-                        }
-                    }
-                }
+                footContact(contact.getFixtureA().getBody().getUserData(), contact.getFixtureB().getBody().getUserData(), true);
+                footContact(contact.getFixtureB().getBody().getUserData(), contact.getFixtureA().getBody().getUserData(), true);
             }
 
             @Override
             public void endContact(Contact contact) {
-                if (contact.getFixtureA().getBody() != null && contact.getFixtureB().getBody().getUserData() != null) {
-                    if (contact.getFixtureA().getBody().getUserData() == player || contact.getFixtureB().getBody().getUserData() == player) {
-                        player.lessNumberOfFootContacts();
-                    }
-                }
+                footContact(contact.getFixtureA().getBody().getUserData(), contact.getFixtureB().getBody().getUserData(), false);
+                footContact(contact.getFixtureB().getBody().getUserData(), contact.getFixtureA().getBody().getUserData(), false);
             }
 
             @Override
@@ -171,171 +175,92 @@ public class MultiplayerState extends State {
             }
         });
 
-        groundBodyDef = new BodyDef();
-        groundBodyDef.position.set(ground.getWidth() / 2 * PIXELS_TO_METERS, ground.getHeight() / 2 * PIXELS_TO_METERS);
-        groundBody = world.createBody(groundBodyDef);
-        groundBox = new PolygonShape();
-        groundBox.setAsBox(ground.getWidth() / 2 * PIXELS_TO_METERS, ground.getHeight() / 2 * PIXELS_TO_METERS);
-        groundBody.createFixture(groundBox, 0.0f);
-
-        wallBodyDef = new BodyDef();
-        wallBodyDef.position.set(wall.getWidth() / 2 * PIXELS_TO_METERS, wall.getHeight() / 2 * PIXELS_TO_METERS);
-        wallBody = world.createBody(wallBodyDef);
-        wallBox = new PolygonShape();
-        wallBox.setAsBox(wall.getWidth() / 2 * PIXELS_TO_METERS, wall.getHeight() / 2 * PIXELS_TO_METERS);
-        wallFixtureDef = new FixtureDef();
-        wallFixtureDef.shape = wallBox;
-        wallFixtureDef.density = 0.0f;
-        wallFixtureDef.friction = 0.0f;
-        wallFixture = wallBody.createFixture(wallFixtureDef);
-
-        wallBodyDef2 = new BodyDef();
-        wallBodyDef2.position.set((cam.position.x + cam.viewportWidth / 2 - wall.getWidth() + wall.getWidth() / 2) * PIXELS_TO_METERS, wall.getHeight() / 2 * PIXELS_TO_METERS);
-        wallBody2 = world.createBody(wallBodyDef2);
-        wallBox2 = new PolygonShape();
-        wallBox2.setAsBox(wall.getWidth() / 2 * PIXELS_TO_METERS, wall.getHeight() / 2 * PIXELS_TO_METERS);
-        wallFixtureDef2 = new FixtureDef();
-        wallFixtureDef2.shape = wallBox2;
-        wallFixtureDef2.density = 0.0f;
-        wallFixtureDef2.friction = 0.0f;
-        wallFixture2 = wallBody2.createFixture(wallFixtureDef2);
-
         playerConnected = false;
-        otherPlayers = new HashMap<String, Ball>();
-        otherPlayersPosition = new HashMap<String, Vector2>();
-        otherPlayersVelocity = new HashMap<String, Vector2>();
-
-        connectSocket();
-        configSocketEvents();
+        otherPlayers = new ObjectMap<String, Ball>();
+        otherPlayersSnapshots = new ObjectMap<String, SnapshotBuffer>();
+        sampledPosition = new Vector2();
+        startTime = TimeUtils.nanoTime();
+        // e.g. -Dyikes.interpolationDelay=0.2 on desktop to try out a longer delay on a bad connection
+        try {
+            interpolationDelay = Float.parseFloat(System.getProperty("yikes.interpolationDelay", Float.toString(DEFAULT_INTERPOLATION_DELAY)));
+        } catch (NumberFormatException e) {
+            interpolationDelay = DEFAULT_INTERPOLATION_DELAY;
+        }
+        remoteTime = -interpolationDelay;
+        otherPlayersIds = new IntMap<String>();
+        writer = new PacketWriter();
+        reader = new PacketReader();
+        snapshots = new SnapshotHistory(SNAPSHOT_HISTORY, ROOM_SIZE);
+        decodedSnapshot = new WorldSnapshot(ROOM_SIZE);
+        lastSnapshot = 0;
+        events = new NetEventQueue(EVENT_QUEUE_CAPACITY, CONTROL_EVENTS_RESERVED);
+        inputHistory = new InputBuffer(INPUT_HISTORY_CAPACITY);
+        nextInputSequence = 0;
+        unsentInputs = 0;
+        boulderStates = new float[NUM_PLATFORMS * 4];
+        reportedDrops = 0;
+
+        if (openTransport()) {
+            configTransportEvents();
+            transport.connect();
+        } else {
+            resetState = true; // back to the menu on the first update. nothing else touches transport before we are connected
+        }
     }
 
     @Override
     protected void handleInput() {
-        if (!playerIsDead) {
-            // if there is more than one contact point, and the player touches the screen, then jump
-            if (Gdx.input.justTouched() && player != null && player.getNumberOfFootContacts() > 0) {
-                jump.play(1f);
-                player.setBodyLinearVelocity(player.getBodyLinearVelocity().x, 50f);
+        if (!playerIsDead && localPlayer != null) {
+            // if the player touches the screen, then jump on the next step, if the ball can
+            if (Gdx.input.justTouched()) {
+                localPlayer.getInput().jump = true; // stays set until the next step uses it
             }
             // controlling the player's horizontal movement by tilting the screen
-            float accelX = Gdx.input.getAccelerometerX();
-            if (accelX > 0 && player != null) {
-                player.setBodyLinearVelocity(-20f * accelX, player.getBodyLinearVelocity().y);
-            }
-            if (accelX < 0 && player != null) {
-                player.setBodyLinearVelocity(-20f * accelX, player.getBodyLinearVelocity().y);
-            }
+            localPlayer.getInput().tilt = Gdx.input.getAccelerometerX();
         }
     }
 
     @Override
     public void update(float dt) {
+        events.drain(this);
+        if (events.getDroppedCount() != reportedDrops) {
+            reportedDrops = events.getDroppedCount();
+            Gdx.app.log("SocketIO", "Dropped " + reportedDrops + " messages so far, at most " + events.getPeakDepth() + " were waiting for a frame");
+        }
         if (resetState) {
             gsm.set(new MenuState(gsm));
+            return; // this state is disposed and its course back in the pool, so nothing below may touch them
         }
-        timer += dt;
-        // if the timer exceeds UPDATE_TIME, then communicate with the server
-        if (timer >= UPDATE_TIME && player != null) {
-            timer = 0;
-            // update the displacement variable by taking the client's current position and comparing it with the server's position of the player
-            if (player != null) {
-                displacementFromLastSentPosition = (float) Math.sqrt(Math.pow(player.getPosition().x - lastSentPosition.x, 2) + Math.pow(player.getPosition().y - lastSentPosition.y, 2));
-            }
-            // if the displacement exceeds 3f, then send the player's current position and velocity to the server
-            if (displacementFromLastSentPosition >= 3f && player != null) {
-                displacementFromLastSentPosition = 0;
-                lastSentPosition.x = player.getPosition().x;
-                lastSentPosition.y = player.getPosition().y;
-                JSONObject data = new JSONObject();
-                try {
-                    data.put("x", player.getPosition().x);
-                    data.put("y", player.getPosition().y);
-                    data.put("velocityX", player.getBodyLinearVelocity().x);
-                    data.put("velocityY", player.getBodyLinearVelocity().y);
-                    socket.emit("playerUpdate", data);
-                } catch (JSONException e) {
-                    Gdx.app.log("SOCKET.IO", "Error sending update data");
-                }
-            }
 
-            for (HashMap.Entry<String, Vector2> entry : otherPlayersPosition.entrySet()) { // updating the ball hashmap with the position and velocity hashmaps
-                String id = entry.getKey();
-                Vector2 position = otherPlayersPosition.get(id);
-                Vector2 velocity = otherPlayersVelocity.get(id);
-                if (!otherPlayers.containsKey(entry.getKey())) { // found an id in position array that isn't in the original array, so put that new id in
-                    Ball otherPlayer = new Ball(position.x, position.y, world);
-                    otherPlayer.setBodyLinearVelocity(velocity.x, velocity.y);
-                    otherPlayers.put(id, otherPlayer);
-                }
-            }
-
-            // adding platforms to a client with an empty platformArray by sending the positions and width of platforms form the server
-            if (needsPlatforms) {
-                for (int i = 0; i < platformPositionArray.size; i++) {
-                    Vector2 position = platformPositionArray.get(i);
-                    Integer width = platformWidthArray.get(i);
-                    platformArray.add(new Platform(position.x, position.y, width, world));
-                }
-                if (platformArray.size != 0) { // confirm that platforms have been added
-                    needsPlatforms = false;
-                }
-            }
-            if (needsBoulders) {
-                for (int i = 0; i < boulderPositionArray.size; i++) {
-                    Vector2 position = boulderPositionArray.get(i);
-                    Float velocity = boulderVelocityArray.get(i);
-                    boulderArray.add(new Boulder(velocity, position.x, position.y, world));
-                }
-                if (boulderArray.size != 0) {
-                    needsBoulders = false;
-                }
-            }
+        handleInput();
+        if (playerConnected && now() >= nextPingTime) {
+            sendPing();
         }
-        if (toRepositionIndex != -1) { // if it is not -1, then reposition the platform and boulder at the specified index
-            platformArray.get(toRepositionIndex).reposition(platformPositionArray.get(toRepositionIndex).x, platformPositionArray.get(toRepositionIndex).y, platformWidthArray.get(toRepositionIndex));
-            if (toRepositionBoulder) {
-                boulderArray.get(toRepositionIndex).reposition(boulderPositionArray.get(toRepositionIndex).x, boulderPositionArray.get(toRepositionIndex).y, boulderVelocityArray.get(toRepositionIndex));
-                toRepositionBoulder = false;
-            }
-            toRepositionIndex = -1;
+        if (playerConnected && player == null) {
+            player = course.obtainBall(BodyDef.BodyType.DynamicBody, cam.position.x - ballRegion.getRegionWidth() / 2, ground.getRegionHeight());
+            localPlayer = new Player("local", player, false); // the server doesn't give anyone double jump
         }
 
-        handleInput();
-        if (playerConnected && player == null) {
-            player = new Ball(cam.position.x - ballTexture.getWidth() / 2, ground.getHeight(), world);
+        // run however many fixed steps fit into the time that passed, so every client simulates at the same speed regardless of frame rate
+        int steps = clock.advance(dt);
+        stepTime = now() - steps * PhysicsClock.STEP_INTERVAL; // so the last of this frame's steps stands for now()
+        remoteTime = stepTime - interpolationDelay; // and shows other players at now() - interpolationDelay
+        for (int i = 0; i < steps && gsm.peek() == this; i++) {
+            step(PhysicsClock.STEP_INTERVAL);
         }
+    }
 
+    // advances the shared game by one fixed step
+    private void step(float dt) {
+        stepTime += dt;
+        rebase();
+        previousCameraY = cam.position.y;
         for (int i = 0; i < platformArray.size; i++) {
             Platform platform = platformArray.get(i);
             platform.update(dt);
-            if (giveServerPositionCoordinates) { // if our representative needs to reposition a platform, all other players also reposition
-                if (platform.getPosition().y + platform.getTexture().getHeight() < cam.position.y - cam.viewportHeight / 2) {
-                    platform.reposition(platform.getPosition().y + PLATFORM_INTERVALS * NUM_PLATFORMS);
-                    // serializing the repositioned platform's position and width to send to other clients
-                    JSONObject repositionedPlatform = new JSONObject();
-                    try {
-                        repositionedPlatform.put("index", i);
-                        repositionedPlatform.put("x", platform.getPosition().x);
-                        repositionedPlatform.put("y", platform.getPosition().y);
-                        repositionedPlatform.put("width", platform.getHoleWidth());
-                        socket.emit("repositionPlatform", repositionedPlatform);
-                    } catch (JSONException e) {
-                        e.printStackTrace();
-                    }
-                    if (boulderGenerator.nextBoolean()) {
-                        boulderArray.get(i).reposition(platform.getPosition().x, platform.getPosition().y + platform.getTexture().getHeight());
-                        JSONObject repositionedBoulder = new JSONObject();
-                        try {
-                            repositionedBoulder.put("index", i);
-                            repositionedBoulder.put("x", boulderArray.get(i).getPosition().x);
-                            repositionedBoulder.put("y", boulderArray.get(i).getPosition().y);
-                            repositionedBoulder.put("velocity", boulderArray.get(i).getBodyLinearVelocityX());
-                            socket.emit("repositionBoulder", repositionedBoulder);
-                        } catch (JSONException e) {
-                            e.printStackTrace();
-                        }
-                    }
-                }
+            // if a platform falls below the screen, then put it in the next row above the screen. the server and every other client put the same platform there
+            if (platform.getPosition().y + Platform.HEIGHT < cam.position.y - cam.viewportHeight / 2) {
+                level.reposition(platform, boulderArray.get(i), LevelGenerator.rowAt(platform.getPosition().y) + course.getOriginRow() + NUM_PLATFORMS, course.getOriginRow());
             }
         }
 
@@ -343,90 +268,345 @@ public class MultiplayerState extends State {
             boulder.update(dt);
         }
 
+        // predict this step's input straight away, and remember it until the server acknowledges it
+        boolean predicting = localPlayer != null && !playerIsDead;
+        if (predicting) {
+            InputCommand input = localPlayer.getInput();
+            if (inputHistory.isFull()) {
+                inputHistory.removeFirst(1); // the server hasn't answered for a long while, so give up on checking the oldest input
+            }
+            inputHistory.add(nextInputSequence++, input.jump, input.tilt);
+            unsentInputs++;
+            if (localPlayer.applyInput()) {
+                jump.play(1f);
+            }
+        }
         if (player != null) {
             player.update(dt);
         }
-        for (HashMap.Entry<String, Ball> entry : otherPlayers.entrySet()) {
-            entry.getValue().update(dt);
+        // other players are not simulated here, only moved to where their snapshots say they were at remoteTime
+        remoteTime += dt;
+        for (ObjectMap.Entry<String, Ball> entry : otherPlayers.entries()) {
+            SnapshotBuffer snapshots = otherPlayersSnapshots.get(entry.key);
+            if (snapshots != null && snapshots.sample(remoteTime, sampledPosition)) {
+                entry.value.moveTo(sampledPosition.x, sampledPosition.y);
+            }
+            entry.value.update(dt);
         }
 
-        // if startCamera is true, then start scrolling upwards while scaling the scrolling speed with time
-        if (startCamera) {
-            if (totalTimePassed < 60) {
-                totalTimePassed += dt;
+        // the camera starts scrolling when the server runs its start step, on the server's clock, so every client's camera moves in lockstep with the server's.
+        // if we heard about it too late for that, catch up on the scrolling we missed. without a synchronized clock yet, start straight away
+        if (!startCamera && cameraStartStep >= 0) {
+            float startTime = serverClock.isSynchronized() ? serverClock.toLocalTime(cameraStartStep * (double) PhysicsClock.STEP_INTERVAL) : stepTime;
+            if (stepTime >= startTime) {
+                startCamera = true;
+                for (int missed = (int) ((stepTime - startTime) / PhysicsClock.STEP_INTERVAL); missed > 0; missed--) {
+                    scrollCamera(PhysicsClock.STEP_INTERVAL);
+                }
             }
-            cam.position.y += 4 * Ball.SCALING_FACTOR * (Math.pow(1.02, totalTimePassed) + 2);
+        }
+        if (startCamera) {
+            scrollCamera(dt);
             cam.update();
         }
 
-        wallBody.setTransform(new Vector2(wallBody.getPosition().x, cam.position.y * PIXELS_TO_METERS), wallBody.getAngle());
-        wallBody2.setTransform(new Vector2(wallBody2.getPosition().x, cam.position.y * PIXELS_TO_METERS), wallBody2.getAngle());
+        course.moveWalls(cam.position.y);
 
-        if (player != null && !playerIsDead && cam.position.y - cam.viewportHeight / 2 > player.getPosition().y + player.getTexture().getHeight()) {
+        if (player != null && !playerIsDead && cam.position.y - cam.viewportHeight / 2 > player.getPosition().y + Ball.SIZE) {
             gameover.play(1f);
             playerIsDead = true;
-            socket.emit("addToDeathCounter");
+            transport.sendReliably("addToDeathCounter");
         }
         world.step(TIME_STEP, 6, 2);
+        // the result of this step's input is where the world step left the ball, which is what the server sends back for it
+        if (predicting) {
+            inputHistory.setResult(inputHistory.size() - 1, player.getBodyX(), player.getBodyY(), player.getBodyLinearVelocity().x, player.getBodyLinearVelocity().y);
+            if (unsentInputs >= STEPS_PER_INPUT_MESSAGE) {
+                sendInputs();
+            }
+        }
     }
 
     @Override
     public void render(SpriteBatch sb) {
-        sb.setProjectionMatrix(cam.combined);
-        sb.begin();
-        sb.draw(bg, 0, cam.position.y - cam.viewportHeight / 2);
-        sb.draw(ground, 0, 0);
-        sb.draw(wall, 0, cam.position.y - cam.viewportHeight / 2);
-        sb.draw(wall, cam.position.x + cam.viewportWidth / 2 - wall.getWidth(), cam.position.y - cam.viewportHeight / 2);
+        // draw everything, including the camera, in between the last two steps so motion stays smooth when frames and steps don't line up
+        float alpha = clock.getAlpha();
+        float cameraY = cam.position.y;
+        cam.position.y = previousCameraY + (cameraY - previousCameraY) * alpha;
+        cam.update();
+        RenderList list = gsm.getRenderList();
+        list.begin(cam);
+        list.add(bg, 0, cam.position.y - cam.viewportHeight / 2, RenderList.LAYER_BACKGROUND);
+        list.add(ground, 0, -course.getOriginRow() * PLATFORM_INTERVALS, RenderList.LAYER_SCENERY); // wherever rebasing has moved it to
+        list.add(wall, 0, cam.position.y - cam.viewportHeight / 2, RenderList.LAYER_SCENERY);
+        list.add(wall, cam.position.x + cam.viewportWidth / 2 - wall.getRegionWidth(), cam.position.y - cam.viewportHeight / 2, RenderList.LAYER_SCENERY);
         if (player != null) {
-            player.render(sb);
+            player.render(list, ballRegion, alpha);
         }
-        for (HashMap.Entry<String, Ball> entry : otherPlayers.entrySet()) {
-            entry.getValue().render(sb);
+        for (Ball otherPlayer : otherPlayers.values()) {
+            otherPlayer.render(list, ballRegion, alpha); // players far above or below the camera are culled here
         }
         for (Platform platform : platformArray) {
-            platform.render(sb);
+            platform.render(list, platformRegion, alpha);
         }
         for (Boulder boulder : boulderArray) {
-            boulder.render(sb);
+            boulder.render(list, boulderRegion, alpha);
         }
+        sb.setProjectionMatrix(cam.combined);
+        sb.begin();
+        list.draw(sb);
         sb.end();
+        cam.position.y = cameraY;
+        cam.update();
     }
 
     @Override
     public void dispose() {
-        bg.dispose();
-        ground.dispose();
-        wall.dispose();
-        player.dispose();
-        ballTexture.dispose();
-        jump.dispose();
-        gameover.dispose();
-        for (HashMap.Entry<String, Ball> entry : otherPlayers.entrySet()) {
-            entry.getValue().dispose();
+        assets.release(Assets.ATLAS);
+        assets.release("jump.mp3");
+        assets.release("gameover.wav");
+        gsm.getCourses().free(course); // takes back our ball and everyone else's along with it
+    }
+
+    // applies one message from the server, on the render thread
+    @Override
+    public void handle(NetEvent event) {
+        switch (event.type) {
+            case NetEvent.CONNECTED:
+                playerConnected = true;
+                break;
+            case NetEvent.NEW_PLAYER:
+                otherPlayersIds.put(event.number, event.id);
+                otherPlayersSnapshots.put(event.id, new SnapshotBuffer(REMOTE_VELOCITY_SCALE));
+                break;
+            case NetEvent.PLAYER_DISCONNECTED:
+                otherPlayersIds.remove(otherPlayersIds.findKey(event.id, false, -1));
+                otherPlayersSnapshots.remove(event.id);
+                Ball ball = otherPlayers.remove(event.id);
+                if (ball != null) {
+                    course.freeBall(ball); // kept for whoever joins next
+                }
+                break;
+            case NetEvent.PLAYER_STATE:
+                String id = otherPlayersIds.get(event.number);
+                SnapshotBuffer snapshots = id == null ? null : otherPlayersSnapshots.get(id);
+                if (snapshots == null) {
+                    break;
+                }
+                float y = toLocalY(event.y, event.origin);
+                snapshots.add(event.time, event.x, y, event.velocityX, event.velocityY); // drawn interpolationDelay after it arrived
+                if (!otherPlayers.containsKey(id)) { // their first position, so they get a ball now
+                    otherPlayers.put(id, course.obtainBall(BodyDef.BodyType.KinematicBody, event.x, y));
+                }
+                break;
+            case NetEvent.LEVEL:
+                if (level != null) {
+                    break;
+                }
+                level = new LevelGenerator(event.seed);
+                course.layOut(level);
+                platformArray = course.getPlatforms();
+                boulderArray = course.getBoulders();
+                break;
+            case NetEvent.START_CAMERA:
+                cameraStartStep = event.number;
+                break;
+            case NetEvent.RESET_STATE:
+                resetState = true;
+                break;
+            case NetEvent.OWN_STATE:
+                reconcile(event.number, event.x, toLocalY(event.y, event.origin), event.velocityX, event.velocityY);
+                break;
+            case NetEvent.PONG:
+                if (serverClock.pong(event.number, event.serverTime, event.time)) {
+                    Gdx.app.debug("SocketIO", "Round trip " + Math.round(serverClock.getRoundTrip() * 1000) + " ms, jitter " + Math.round(serverClock.getJitter() * 1000)
+                            + " ms, server clock " + Math.round(serverClock.getOffset() * 1000) + " ms ahead");
+                }
+                break;
         }
     }
 
-    public void connectSocket() {
+    // moves the camera down with the course whenever the course rebases, along with every position we keep from before. the server rebases its own course
+    // when its camera gets there, which needn't be the same step, so positions from the server are converted with toLocalY
+    private void rebase() {
+        float dy = course.rebase(cam.position.y);
+        if (dy == 0) {
+            return;
+        }
+        cam.position.y += dy;
+        cam.update();
+        inputHistory.offsetResults(0, dy, 0, 0);
+        for (SnapshotBuffer snapshots : otherPlayersSnapshots.values()) {
+            snapshots.offsetY(dy);
+        }
+    }
+
+    // a y the server measured from its origin row, measured from ours instead
+    private float toLocalY(float y, int origin) {
+        return y + (origin - course.getOriginRow()) * PLATFORM_INTERVALS;
+    }
+
+    // counts our own ball's foot sensor touching something by the server's rule, so a jump and a cleared platform's closing hole are predicted the way the
+    // server will run them. other players' balls are only moved here, not simulated. clearing a platform also asks the server to start the camera
+    private void footContact(Object self, Object other, boolean begin) {
+        if (player == null || self != player) {
+            return;
+        }
+        if (Simulation.countFootContact(player, other, begin) != null && !cameraRequested) {
+            cameraRequested = true;
+            transport.sendReliably("startCamera"); // ask the server to start the camera for every player. it answers with the step it starts on
+        }
+    }
+
+    // scrolls upwards, while scaling the scrolling speed with time
+    private void scrollCamera(float dt) {
+        if (totalTimePassed < 60) {
+            totalTimePassed += dt;
+            scrollSpeedMultiplier *= SCROLL_GROWTH_PER_STEP;
+        }
+        cam.position.y += 4 * Ball.SCALING_FACTOR * (scrollSpeedMultiplier + 2);
+    }
+
+    // asks the server for its clock, quickly at first and then every PING_INTERVAL to follow changes in the round trip
+    private void sendPing() {
+        Protocol.begin(writer).writeVarInt(serverClock.ping(now()));
+        transport.send("clockPing", writer);
+        nextPingTime = now() + (serverClock.isSynchronized() ? PING_INTERVAL : FAST_PING_INTERVAL);
+    }
+
+    // sends every input the server hasn't acknowledged yet, up to the newest INPUT_REDUNDANCY of them, so a message that is lost or arrives out of order
+    // costs nothing as long as a later one gets there. the server skips the ones it has already queued
+    private void sendInputs() {
+        int first = Math.max(0, inputHistory.size() - INPUT_REDUNDANCY);
+        Protocol.begin(writer).writeVarInt(lastSnapshot);
+        writer.writeVarInt(inputHistory.getSequence(first));
+        writer.writeVarInt(inputHistory.size() - first);
+        for (int n = first; n < inputHistory.size(); n++) {
+            Protocol.writeInput(writer, inputHistory.getJump(n), inputHistory.getTilt(n));
+        }
+        transport.send("input", writer);
+        unsentInputs = 0;
+    }
+
+    // checks the server's state of our ball, as of the input numbered sequence, against what we predicted after that input. when they differ by more than
+    // RECONCILE_TOLERANCE, the ball is put back where the server had it and every input the server hasn't run yet is run again from there, through the same
+    // Player rules and world steps, so a jump, a landing or a wall hit in between comes out the way the server will see it. the boulders are the only other
+    // bodies a world step moves, so they are put back afterwards. other players stay where they are now, since their past positions are only guesses anyway
+    private void reconcile(int sequence, float x, float y, float velocityX, float velocityY) {
+        int n = inputHistory.indexOf(sequence);
+        if (n < 0 || player == null || playerIsDead) {
+            return;
+        }
+        float errorX = x - inputHistory.getX(n);
+        float errorY = y - inputHistory.getY(n);
+        inputHistory.removeFirst(n + 1);
+        if (Math.abs(errorX) > RECONCILE_TOLERANCE || Math.abs(errorY) > RECONCILE_TOLERANCE) {
+            replay(x, y, velocityX, velocityY);
+        }
+    }
+
+    // re-runs the inputs left in inputHistory from the server's state of our ball, rewriting their predicted results. the ball is only drawn from where it
+    // is now on its next update, so the correction is interpolated like any other step
+    private void replay(float x, float y, float velocityX, float velocityY) {
+        for (int i = 0; i < boulderArray.size; i++) {
+            boulderArray.get(i).saveBody(boulderStates, i * 4);
+        }
+        InputCommand input = localPlayer.getInput();
+        boolean nextJump = input.jump; // what the player has done since the last step, for the next one
+        float nextTilt = input.tilt;
+
+        player.moveTo(x, y);
+        player.setBodyLinearVelocity(velocityX, velocityY);
+        for (int n = 0; n < inputHistory.size(); n++) {
+            player.followBody();
+            input.jump = inputHistory.getJump(n);
+            input.tilt = inputHistory.getTilt(n);
+            localPlayer.applyInput(); // the jump was heard the first time round
+            world.step(TIME_STEP, 6, 2);
+            inputHistory.setResult(n, player.getBodyX(), player.getBodyY(), player.getBodyLinearVelocity().x, player.getBodyLinearVelocity().y);
+        }
+        player.followBody();
+
+        input.jump = nextJump;
+        input.tilt = nextTilt;
+        for (int i = 0; i < boulderArray.size; i++) {
+            boulderArray.get(i).restoreBody(boulderStates, i * 4);
+        }
+    }
+
+    // reserves an event for a message that just arrived, or returns null if the render thread has fallen too far behind and the message has to be dropped.
+    // fill it in and publish it without anything in between that can throw, or the queue stops at it. only for states and pongs, which later ones replace
+    private NetEvent claim(int type) {
+        NetEvent event = events.claim();
+        if (event != null) {
+            event.type = type;
+            event.time = now();
+        }
+        return event;
+    }
+
+    // the same for a message that is sent once and can't be dropped, like a player joining or the room resetting. never returns null
+    private NetEvent claimControl(int type) {
+        NetEvent event = events.claimControl();
+        event.type = type;
+        event.time = now();
+        return event;
+    }
+
+    // seconds since the state was created, on both the render and the transport's thread
+    private float now() {
+        return (TimeUtils.nanoTime() - startTime) / 1000000000f;
+    }
+
+    // the server comes from -Dyikes.server (e.g. -Dyikes.server=http://localhost:5000 on desktop to play against a local server), then the
+    // "Server URL" preference, which works on android too, and otherwise the public server. a udp://host:port url plays over UDP instead of socket.io,
+    // against a server started with UDP_PORT, and -Dyikes.loss=0.1 then drops a tenth of the datagrams each way to see how the game copes with a bad network.
+    // returns false, leaving transport null, if the url or the loss can't be used
+    public boolean openTransport() {
         try {
-            socket = IO.socket("https://blooming-reef-86477.herokuapp.com");
-            socket.connect();
+            String url = System.getProperty("yikes.server", settings.getString("Server URL", DEFAULT_SERVER_URL));
+            if (url.startsWith(DatagramTransport.SCHEME + "://")) {
+                transport = new DatagramTransport(new URI(url), Float.parseFloat(System.getProperty("yikes.loss", "0")));
+            } else {
+                transport = new SocketIOTransport(url);
+            }
+            return true;
         } catch(Exception e) {
-            System.out.println(e);
+            Gdx.app.error("SocketIO", "Couldn't open a connection to the server", e);
+            return false;
         }
     }
 
-    public void configSocketEvents() {
-        socket.on(Socket.EVENT_CONNECT, new Emitter.Listener() {
+    // every listener here runs on the transport's thread. they only decode the message and post it to events, which update() applies on the render thread
+    public void configTransportEvents() {
+        transport.on(Transport.CONNECT, new Transport.Listener() {
             @Override
-            public void call(Object... args) {
-                Gdx.app.log("SocketIO", "Connected");
-                playerConnected = true;
+            public void received(Object message) {
+                Gdx.app.log("SocketIO", "Connected, waiting for a room");
+            }
+        }).on(Transport.DISCONNECT, new Transport.Listener() {
+            @Override
+            public void received(Object message) {
+                Gdx.app.log("SocketIO", "Disconnected");
+            }
+        }).on("room", new Transport.Listener() {
+            @Override
+            public void received(Object message) { // the server's matchmaker has put us in a room with other players, so the game can start
+                JSONObject data = (JSONObject) message;
+                try {
+                    String id = data.getString("id");
+                    Gdx.app.log("SocketIO", "Joined " + id);
+                    NetEvent event = claimControl(NetEvent.CONNECTED);
+                    event.id = id;
+                    events.publish(event);
+                } catch (JSONException e) {
+                    Gdx.app.log("SocketIO", "Error getting the room ID");
+                }
             }
-        }).on("socketID", new Emitter.Listener() {
+        }).on("socketID", new Transport.Listener() {
             @Override
-            public void call(Object... args) {
-                JSONObject data = (JSONObject) args[0];
+            public void received(Object message) {
+                JSONObject data = (JSONObject) message;
                 try {
                     String id = data.getString("id");
                     Gdx.app.log("SocketIO", "My ID: " + id);
@@ -434,156 +614,140 @@ public class MultiplayerState extends State {
                     Gdx.app.log("SocketIO", "Error getting ID");
                 }
             }
-        }).on("newPlayer", new Emitter.Listener() {
+        }).on("newPlayer", new Transport.Listener() {
             @Override
-            public void call(Object... args) { // when another client connects, put their position and velocity into the array
-                JSONObject data = (JSONObject) args[0];
+            public void received(Object message) { // when another client connects, start keeping their snapshots
+                JSONObject data = (JSONObject) message;
                 try {
                     String id = data.getString("id");
+                    int number = data.getInt("number");
                     Gdx.app.log("SocketIO", "New Player Connected: " + id);
-                    otherPlayersPosition.put(id, new Vector2(200, 200));
-                    otherPlayersVelocity.put(id, new Vector2(0, 0));
+                    NetEvent event = claimControl(NetEvent.NEW_PLAYER);
+                    event.id = id;
+                    event.number = number;
+                    events.publish(event);
                 } catch (JSONException e) {
                     Gdx.app.log("SocketIO", "Error getting new Player ID");
                 }
             }
-        }).on("playerDisconnected", new Emitter.Listener() {
+        }).on("playerDisconnected", new Transport.Listener() {
             @Override
-            public void call(Object... args) { // when another client disconnects, remove their values from the arrays
-                JSONObject data = (JSONObject) args[0];
+            public void received(Object message) { // when another client disconnects, remove their ball
+                JSONObject data = (JSONObject) message;
                 try {
                     String id = data.getString("id");
-                    otherPlayers.remove(id);
-                    otherPlayersPosition.remove(id);
-                    otherPlayersVelocity.remove(id);
+                    NetEvent event = claimControl(NetEvent.PLAYER_DISCONNECTED);
+                    event.id = id;
+                    events.publish(event);
                 } catch (JSONException e) {
                     Gdx.app.log("SocketIO", "Error getting disconnected Player ID");
                 }
             }
-        }).on("getPlayers", new Emitter.Listener() {
+        }).on("getPlayers", new Transport.Listener() {
             @Override
-            public void call(Object... args) { // when the player connects to the server, get the positions and velocities of other players
-                JSONArray objects = (JSONArray) args[0];
+            public void received(Object message) { // when the player connects to the server, get everyone already in the room. where they are comes in the first worldState
+                JSONArray objects = (JSONArray) message;
                 try {
                     for (int i = 0; i < objects.length(); i++) {
-                        Vector2 position = new Vector2();
-                        position.x = ((Double) objects.getJSONObject(i).getDouble("x")).floatValue();
-                        position.y = ((Double) objects.getJSONObject(i).getDouble("y")).floatValue();
-                        otherPlayersPosition.put(objects.getJSONObject(i).getString("id"), position);
-                        otherPlayersVelocity.put(objects.getJSONObject(i).getString("id"), new Vector2(0, 0));
+                        JSONObject object = objects.getJSONObject(i);
+                        String id = object.getString("id");
+                        int number = object.getInt("number");
+                        NetEvent event = claimControl(NetEvent.NEW_PLAYER);
+                        event.id = id;
+                        event.number = number;
+                        events.publish(event);
                     }
                 } catch(JSONException e) {
 
                 }
             }
-        }).on("playerUpdate", new Emitter.Listener() {
+        }).on("worldState", new Transport.Listener() {
             @Override
-            public void call(Object... args) { // when another player sends their position to the server, every other player receives the new position and updates their client accordingly
-                JSONObject data = (JSONObject) args[0];
-                try {
-                    String id = data.getString("id");
-                    Double x = data.getDouble("x");
-                    Double y = data.getDouble("y");
-                    Double velocityX = data.getDouble("velocityX");
-                    Double velocityY = data.getDouble("velocityY");
-                    if (otherPlayersPosition.get(id) != null) {
-                        otherPlayersPosition.put(id, new Vector2(x.floatValue(), y.floatValue()));
-                    }
-                    if (otherPlayersVelocity.get(id) != null) {
-                        otherPlayersVelocity.put(id, new Vector2(velocityX.floatValue(), velocityY.floatValue()));
-                    }
-                    Vector2 position = otherPlayersPosition.get(id);
-                    Vector2 velocity = otherPlayersVelocity.get(id);
-                    if (otherPlayers.containsKey(id)) { // if it already contains the id, then just update its ball's position
-                        Ball otherPlayer = otherPlayers.get(id);
-                        otherPlayer.setPosition(position.x, position.y);
-                        otherPlayer.setBodyLinearVelocity(velocity.x, velocity.y);
-                    }
-                } catch (JSONException e) {
-                    Gdx.app.log("SocketIO", "Error getting disconnected Player ID");
+            public void received(Object message) { // the balls we need, as differences from a snapshot we acknowledged, up to 20 times a second
+                if (!Protocol.begin(reader, (byte[]) message)) {
+                    return;
                 }
-            }
-        }).on("getPlatforms", new Emitter.Listener() {
-            @Override
-            public void call(Object... args) { // when the player connects, get the positions and widths of each platform stored on the server
-                JSONArray objects = (JSONArray) args[0];
-                try {
-                    for (int i = 0; i < objects.length(); i++) {
-                        Vector2 position = new Vector2();
-                        position.x = ((Double) objects.getJSONObject(i).getDouble("x")).floatValue();
-                        position.y = ((Double) objects.getJSONObject(i).getDouble("y")).floatValue();
-                        Integer width = new Integer(objects.getJSONObject(i).getInt("width"));
-                        platformWidthArray.add(width);
-                        platformPositionArray.add(position);
+                int id = reader.readVarInt();
+                int baselineId = reader.readVarInt();
+                int ownNumber = reader.readVarInt();
+                int sequence = reader.readVarInt() - 1;
+                int origin = reader.readVarInt();
+                WorldSnapshot baseline = snapshots.get(baselineId);
+                if (id <= lastSnapshot || (baselineId != 0 && baseline == null)) {
+                    return; // out of date, or encoded against a snapshot we no longer have. the server falls back to a full one once our acknowledgement is too old
+                }
+                WorldSnapshot previous = snapshots.get(lastSnapshot);
+                Protocol.readSnapshot(reader, baseline, decodedSnapshot, id);
+                decodedSnapshot.origin = origin;
+                boolean rebased = previous != null && previous.origin != origin; // every ball's y changed, even one that didn't move
+                for (int i = 0; i < decodedSnapshot.size(); i++) {
+                    int number = decodedSnapshot.getNumber(i);
+                    boolean own = number == ownNumber;
+                    if (own ? sequence < 0 : !rebased && decodedSnapshot.sameAs(i, previous)) {
+                        continue; // other balls only go to the render thread when they changed, our own every time, to check our prediction against
+                    }
+                    NetEvent event = claim(own ? NetEvent.OWN_STATE : NetEvent.PLAYER_STATE);
+                    if (event != null) {
+                        event.number = own ? sequence : number;
+                        event.x = Protocol.dequantizeX(decodedSnapshot.getX(i));
+                        event.y = Protocol.dequantizeY(decodedSnapshot.getY(i));
+                        event.velocityX = Protocol.dequantizeVelocity(decodedSnapshot.getVelocityX(i));
+                        event.velocityY = Protocol.dequantizeVelocity(decodedSnapshot.getVelocityY(i));
+                        event.origin = origin;
+                        events.publish(event);
                     }
-                } catch (JSONException e) {
-
                 }
+                snapshots.add(id).set(decodedSnapshot);
+                lastSnapshot = id;
             }
-        }).on("startCamera", new Emitter.Listener() {
+        }).on("level", new Transport.Listener() {
             @Override
-            public void call(Object... args) {
+            public void received(Object message) { // when the player connects, get the seed the room's whole course is worked out from
                 try {
-                    startCamera = ((JSONObject) args[0]).getBoolean("start");
+                    long seed = Long.parseLong(((JSONObject) message).getString("seed"));
+                    NetEvent event = claimControl(NetEvent.LEVEL);
+                    event.seed = seed;
+                    events.publish(event);
                 } catch (JSONException e) {
-                    e.printStackTrace();
+                    Gdx.app.log("SocketIO", "Error getting the level seed");
+                } catch (NumberFormatException e) {
+                    Gdx.app.log("SocketIO", "Error getting the level seed");
                 }
             }
-        }).on("repositionPlatform", new Emitter.Listener() {
+        }).on("startCamera", new Transport.Listener() {
             @Override
-            public void call(Object... args) { // the server sends a repositioned platform's position and width to all clients for them to update
-                JSONObject repositionedPlatform = (JSONObject) args[0];
+            public void received(Object message) { // someone cleared a platform, so the camera starts scrolling on the given server step
                 try {
-                    int i = repositionedPlatform.getInt("index");
-                    float x = ((Double) repositionedPlatform.getDouble("x")).floatValue();
-                    float y = ((Double) repositionedPlatform.getDouble("y")).floatValue();
-                    int width = repositionedPlatform.getInt("width");
-                    platformPositionArray.set(i, new Vector2(x, y));
-                    platformWidthArray.set(i, width);
-                    toRepositionIndex = i;
+                    int step = ((JSONObject) message).getInt("step");
+                    NetEvent event = claimControl(NetEvent.START_CAMERA);
+                    event.number = step;
+                    events.publish(event);
                 } catch (JSONException e) {
-                    e.printStackTrace();
+                    Gdx.app.log("SocketIO", "Error getting the camera's start step");
                 }
             }
-        }).on("getBoulders", new Emitter.Listener() {
+        }).on("clockPong", new Transport.Listener() {
             @Override
-            public void call(Object... args) { // when the player connects, get the positions and velocity of each boulder stored on the server
-                JSONArray objects = (JSONArray) args[0];
-                try {
-                    for (int i = 0; i < objects.length(); i++) {
-                        Vector2 position = new Vector2();
-                        position.x = ((Double) objects.getJSONObject(i).getDouble("x")).floatValue();
-                        position.y = ((Double) objects.getJSONObject(i).getDouble("y")).floatValue();
-                        Float velocity = new Float(objects.getJSONObject(i).getInt("velocity"));
-                        boulderVelocityArray.add(velocity);
-                        boulderPositionArray.add(position);
-                    }
-                } catch (JSONException e) {
-
+            public void received(Object message) { // the server's clock, in answer to one of our pings. its arrival time is stamped by claim()
+                if (!Protocol.begin(reader, (byte[]) message)) {
+                    return;
                 }
-            }
-        }).on("repositionBoulder", new Emitter.Listener() {
-            @Override
-            public void call(Object... args) { // the server sends a repositioned boulder's position and velocity to all clients for them to update
-                JSONObject repositionedBoulder = (JSONObject) args[0];
-                try {
-                    int i = repositionedBoulder.getInt("index");
-                    float x = ((Double) repositionedBoulder.getDouble("x")).floatValue();
-                    float y = ((Double) repositionedBoulder.getDouble("y")).floatValue();
-                    float velocity = ((Double) repositionedBoulder.getDouble("velocity")).floatValue();
-                    boulderPositionArray.set(i, new Vector2(x, y));
-                    boulderVelocityArray.set(i, velocity);
-                    toRepositionBoulder = true;
-                } catch (JSONException e) {
-                    e.printStackTrace();
+                int id = reader.readVarInt();
+                long serverTime = reader.readVarLong();
+                NetEvent event = claim(NetEvent.PONG);
+                if (event != null) {
+                    event.number = id;
+                    event.serverTime = serverTime / Protocol.SERVER_TIME_SCALE;
+                    events.publish(event);
                 }
             }
-        }).on("resetState", new Emitter.Listener() {
+        }).on("resetState", new Transport.Listener() {
             @Override
-            public void call(Object... args) { // when all players are dead, bring them back to the menu state, and disconnect them from the server
-                socket.disconnect();
-                resetState = true;
+            public void received(Object message) { // when all players are dead, bring them back to the menu state, and disconnect them from the server
+                events.publish(claimControl(NetEvent.RESET_STATE)); // queued first, so however the disconnect goes, update() still takes us back
+                transport.disconnect();
             }
         });
     }
+
 }
@@ -1,11 +1,10 @@
 package com.sodirea.yikes.states;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.Preferences;
 import com.badlogic.gdx.audio.Sound;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.scenes.scene2d.Actor;
@@ -23,15 +22,16 @@ import com.badlogic.gdx.utils.Align;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.viewport.StretchViewport;
 import com.sodirea.yikes.Yikes;
+import com.sodirea.yikes.assets.Assets;
 
 public class ShopState extends State {
 
     private Sound menuclick;
+    private TextureAtlas atlas;
     private Image bg;
     private Array<ImageTextButton> unlocksArray;
     private ImageTextButton doubleJump;
     private Stage stage;
-    private Preferences prefs;
     private BitmapFont squrave;
     private ScrollPane scrollPane;
     private Table btnTable;
@@ -39,11 +39,11 @@ public class ShopState extends State {
     protected ShopState(GameStateManager gsm) {
         super(gsm);
         cam.setToOrtho(false, Yikes.WIDTH, Yikes.HEIGHT);
-        menuclick = Gdx.audio.newSound(Gdx.files.internal("menuclick.wav"));
-        bg = new Image(new TextureRegionDrawable(new TextureRegion(new Texture("bg.png"))));
+        menuclick = assets.getSound("menuclick.wav");
+        atlas = assets.getAtlas();
+        bg = new Image(new TextureRegionDrawable(atlas.findRegion("bg")));
         unlocksArray = new Array<ImageTextButton>();
-        prefs = Gdx.app.getPreferences("Prefs");
-        squrave = new BitmapFont(Gdx.files.internal("squrave.fnt"), false);
+        squrave = assets.getFont("squrave.fnt");
         stage = new Stage(new StretchViewport(cam.viewportWidth, cam.viewportHeight));
         Gdx.input.setInputProcessor(stage);
         btnTable = new Table();
@@ -55,7 +55,7 @@ public class ShopState extends State {
         stage.addActor(scrollPane);
 
         squrave.getData().setScale(0.3f, 0.3f);
-        Drawable btnBg = new TextureRegionDrawable(new TextureRegion(new Texture("unlockbtns.png")));
+        Drawable btnBg = new TextureRegionDrawable(atlas.findRegion("unlockbtns"));
         ImageTextButton.ImageTextButtonStyle style = new ImageTextButton.ImageTextButtonStyle(btnBg, btnBg, btnBg, squrave);
 
         doubleJump = new ImageTextButton("DOUBLE JUMP", style);
@@ -63,10 +63,9 @@ public class ShopState extends State {
 
         for (ImageTextButton btn : unlocksArray) {
             // check if they meet the requirements for an unlock
-            if (prefs.getInteger("highscore", 0) >= prefs.getInteger(btn.getName() + " Score Requirements")) {
-                prefs.putBoolean(btn.getName(), true);
-                prefs.flush();
-                if (prefs.getBoolean(btn.getName() + " Toggle", false)) {
+            if (settings.getInteger("highscore", 0) >= settings.getInteger(btn.getName() + " Score Requirements", 0)) {
+                settings.putBoolean(btn.getName(), true);
+                if (settings.getBoolean(btn.getName() + " Toggle", false)) {
                     btn.setText(btn.getName() + " - ON");
                 } else {
                     btn.setText(btn.getName() + " - OFF");
@@ -88,15 +87,14 @@ public class ShopState extends State {
                         label = (Label) target;
                     }
 
-                    if (prefs.getBoolean(key, false)) {
-                        if (prefs.getBoolean(key + " Toggle", false)) {
-                            prefs.putBoolean(key + " Toggle", false);
+                    if (settings.getBoolean(key, false)) {
+                        if (settings.getBoolean(key + " Toggle", false)) {
+                            settings.putBoolean(key + " Toggle", false);
                             label.setText(key + " - OFF");
-                        } else if (!prefs.getBoolean(key + " Toggle", false)) {
-                            prefs.putBoolean(key + " Toggle", true);
+                        } else if (!settings.getBoolean(key + " Toggle", false)) {
+                            settings.putBoolean(key + " Toggle", true);
                             label.setText(key + " - ON");
                         }
-                        prefs.flush();
                     }
                 }
             });
@@ -106,7 +104,7 @@ public class ShopState extends State {
     @Override
     protected void handleInput() {
         if (Gdx.input.justTouched()) {
-            Vector3 mousePos = new Vector3(Gdx.input.getX(), Gdx.input.getY(), 0);
+            Vector3 mousePos = mouse.set(Gdx.input.getX(), Gdx.input.getY(), 0);
             cam.unproject(mousePos);
             // if they click the back button, go back to menu state
             if (mousePos.x < 100 && mousePos.y > stage.getHeight() - 100) {
@@ -120,12 +118,12 @@ public class ShopState extends State {
     public void update(float dt) {
         handleInput();
         for (ImageTextButton btn : unlocksArray) {
-            if (!prefs.getBoolean(btn.getName(), false)) {
+            if (!settings.getBoolean(btn.getName(), false)) {
                 // if an unlock button is pressed and held while locked, display the requirements for unlocking
                 if (!btn.isPressed()) {
                     btn.setText(btn.getName() + " - LOCKED");
                 } else {
-                    btn.setText("GET OVER " + prefs.getInteger(btn.getName() + " Score Requirements") + " SCORE");
+                    btn.setText("GET OVER " + settings.getInteger(btn.getName() + " Score Requirements", 0) + " SCORE");
                 }
             }
         }
@@ -146,18 +144,19 @@ public class ShopState extends State {
     @Override
     public void dispose() {
         stage.dispose();
-        squrave.dispose();
-        menuclick.dispose();
+        assets.release(Assets.ATLAS);
+        assets.release("squrave.fnt");
+        assets.release("menuclick.wav");
     }
 
     public void initUnlock(ImageTextButton btn, String key) {
         btn.setName(key);
         btn.getLabel().setName(key);
         // determine what text to display on the unlock button depending on whether the unlock is unlocked
-        if (!prefs.getBoolean(key, false)) {
+        if (!settings.getBoolean(key, false)) {
             btn.setText(btn.getName() + " - LOCKED");
         } else {
-            if (prefs.getBoolean(key + " Toggle", false)) {
+            if (settings.getBoolean(key + " Toggle", false)) {
                 btn.setText(btn.getName() + " - ON");
             } else {
                 btn.setText(btn.getName() + " - OFF");
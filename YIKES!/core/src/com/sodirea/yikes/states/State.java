@@ -3,17 +3,23 @@ package com.sodirea.yikes.states;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.math.Vector3;
+import com.sodirea.yikes.assets.Assets;
+import com.sodirea.yikes.settings.Settings;
 
 public abstract class State {
 
     protected OrthographicCamera cam;
     protected Vector3 mouse;
     protected GameStateManager gsm;
+    protected Assets assets;
+    protected Settings settings;
 
     protected State(GameStateManager gsm) {
         cam = new OrthographicCamera();
         mouse = new Vector3();
         this.gsm = gsm;
+        assets = gsm.getAssets();
+        settings = gsm.getSettings();
     }
 
     protected abstract void handleInput();
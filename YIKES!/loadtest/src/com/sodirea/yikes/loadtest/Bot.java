@@ -0,0 +1,169 @@
+package com.sodirea.yikes.loadtest;
+
+import com.sodirea.yikes.net.PacketReader;
+import com.sodirea.yikes.net.PacketWriter;
+import com.sodirea.yikes.net.Protocol;
+import com.sodirea.yikes.states.MultiplayerState;
+
+import java.net.URISyntaxException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import io.socket.client.IO;
+import io.socket.client.Socket;
+import io.socket.emitter.Emitter;
+
+// one headless player. it speaks the same socket.io events as MultiplayerState, but plays from a script instead of the touch screen and accelerometer:
+// it tilts back and forth, jumps every so often, starts the camera a little after its room forms and dies after ROUND_SECONDS. once everyone in the
+// room has died the server sends it back to the menu, and it queues for a new room straight away like a player pressing play again.
+// run() is called by the LoadTest's scheduler every MESSAGE_INTERVAL_MILLIS; the listeners run on the socket.io event thread
+public class Bot implements Runnable {
+
+    public static final int STEPS_PER_MESSAGE = MultiplayerState.STEPS_PER_INPUT_MESSAGE;
+    public static final long MESSAGE_INTERVAL_MILLIS = 50; // STEPS_PER_MESSAGE steps of 1/60 s, the rate a real client sends at
+    public static final int JUMP_INTERVAL_STEPS = 40;
+    public static final int TILT_PERIOD_STEPS = 180;
+    public static final float TILT_AMPLITUDE = 4f; // about as far as a phone is tilted in play
+    public static final float START_CAMERA_SECONDS = 2f;
+    public static final float ROUND_SECONDS = 30f;
+    public static final int SENT_TIMES_CAPACITY = 1024; // over 17 seconds of steps, so only a hopelessly overloaded server has its latency under-reported
+
+    private final int index;
+    private final LoadStats stats;
+    private final Socket socket;
+    private final PacketWriter writer; // only used by run()
+    private final PacketReader reader; // only used on the event thread
+    private final AtomicLongArray sentTimes; // when the message carrying each sequence was sent, indexed by sequence % SENT_TIMES_CAPACITY
+    private final float lifetime; // how long into a round this bot dies, spread out so rooms don't empty all at once
+
+    // written on the event thread when the server puts the bot in a room
+    private volatile boolean inRoom;
+    private volatile int round;
+    private volatile long roundStartNanos;
+
+    // only touched by run()
+    private int playingRound;
+    private int nextSequence;
+    private int stepsSent;
+    private boolean cameraStarted;
+    private boolean dead;
+
+    // only touched on the event thread
+    private int lastAcknowledged;
+    private volatile int lastSnapshot; // the newest worldState snapshot received, acknowledged with each input like a real client does
+
+    public Bot(int index, String url, LoadStats stats) throws URISyntaxException {
+        this.index = index;
+        this.stats = stats;
+        IO.Options options = new IO.Options();
+        options.forceNew = true; // its own connection, rather than sharing one with every other bot
+        socket = IO.socket(url, options);
+        writer = new PacketWriter();
+        reader = new PacketReader();
+        sentTimes = new AtomicLongArray(SENT_TIMES_CAPACITY);
+        lifetime = ROUND_SECONDS * (0.75f + 0.5f * (index % 16) / 16f);
+        inRoom = false;
+        round = 0;
+        playingRound = 0;
+        nextSequence = 0;
+        stepsSent = 0;
+        lastAcknowledged = -1;
+        lastSnapshot = 0;
+        listen();
+    }
+
+    public void connect() {
+        socket.connect();
+    }
+
+    public void disconnect() {
+        inRoom = false;
+        socket.disconnect();
+    }
+
+    @Override
+    public void run() {
+        if (!inRoom) {
+            return;
+        }
+        if (playingRound != round) {
+            playingRound = round;
+            cameraStarted = false;
+            dead = false;
+        }
+        if (dead) {
+            return;
+        }
+        long now = System.nanoTime();
+        Protocol.begin(writer).writeVarInt(lastSnapshot);
+        writer.writeVarInt(nextSequence);
+        writer.writeVarInt(STEPS_PER_MESSAGE);
+        for (int i = 0; i < STEPS_PER_MESSAGE; i++, stepsSent++, nextSequence++) {
+            boolean jump = (stepsSent + index) % JUMP_INTERVAL_STEPS == 0;
+            float tilt = TILT_AMPLITUDE * (float) Math.sin(2 * Math.PI * (stepsSent + index * 7) / TILT_PERIOD_STEPS);
+            Protocol.writeInput(writer, jump, tilt);
+            sentTimes.set(nextSequence % SENT_TIMES_CAPACITY, now);
+        }
+        socket.emit("input", writer.toByteArray());
+        stats.inputSent();
+
+        float roundTime = (now - roundStartNanos) / 1000000000f;
+        if (!cameraStarted && roundTime >= START_CAMERA_SECONDS) {
+            cameraStarted = true;
+            socket.emit("startCamera");
+        }
+        if (roundTime >= lifetime) {
+            dead = true;
+            socket.emit("addToDeathCounter");
+        }
+    }
+
+    private void listen() {
+        socket.on(Socket.EVENT_CONNECT, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                stats.connected();
+            }
+        }).on(Socket.EVENT_DISCONNECT, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                inRoom = false;
+                stats.disconnected();
+            }
+        }).on("room", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                roundStartNanos = System.nanoTime();
+                round++;
+                inRoom = true;
+                stats.roomJoined();
+            }
+        }).on("worldState", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) { // only the header matters here: the snapshot to acknowledge, and which of our inputs the server has run
+                if (!Protocol.begin(reader, (byte[]) args[0])) {
+                    return;
+                }
+                stats.stateReceived(((byte[]) args[0]).length);
+                int snapshot = reader.readVarInt();
+                reader.readVarInt(); // baseline
+                reader.readVarInt(); // our number
+                int sequence = reader.readVarInt() - 1;
+                if (snapshot > lastSnapshot) {
+                    lastSnapshot = snapshot;
+                }
+                if (sequence > lastAcknowledged) {
+                    lastAcknowledged = sequence;
+                    stats.recordLatency(System.nanoTime() - sentTimes.get(sequence % SENT_TIMES_CAPACITY));
+                }
+            }
+        }).on("resetState", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) { // everyone died, so go back to the matchmaker for a new room
+                inRoom = false;
+                lastSnapshot = 0; // the next room starts its snapshots over
+                socket.disconnect();
+                socket.connect();
+            }
+        });
+    }
+}
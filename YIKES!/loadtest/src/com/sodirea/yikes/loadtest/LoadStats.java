@@ -0,0 +1,80 @@
+package com.sodirea.yikes.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// what every bot counts, from whichever thread it happens on. latencies are recorded in microseconds
+public class LoadStats {
+
+    public static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Recorder latency;
+    private final AtomicInteger connections;
+    private final AtomicLong roomsJoined;
+    private final AtomicLong inputsSent;
+    private final AtomicLong statesReceived;
+    private final AtomicLong bytesReceived;
+
+    public LoadStats() {
+        latency = new Recorder(SIGNIFICANT_DIGITS);
+        connections = new AtomicInteger(0);
+        roomsJoined = new AtomicLong(0);
+        inputsSent = new AtomicLong(0);
+        statesReceived = new AtomicLong(0);
+        bytesReceived = new AtomicLong(0);
+    }
+
+    public void connected() {
+        connections.incrementAndGet();
+    }
+
+    public void disconnected() {
+        connections.decrementAndGet();
+    }
+
+    public void roomJoined() {
+        roomsJoined.incrementAndGet();
+    }
+
+    public void inputSent() {
+        inputsSent.incrementAndGet();
+    }
+
+    public void stateReceived(int bytes) {
+        statesReceived.incrementAndGet();
+        bytesReceived.addAndGet(bytes);
+    }
+
+    public void recordLatency(long nanos) {
+        latency.recordValue(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    // the latencies recorded since the last call, reusing the histogram the last call returned
+    public Histogram takeLatencies(Histogram recycle) {
+        return latency.getIntervalHistogram(recycle);
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    public long getRoomsJoined() {
+        return roomsJoined.get();
+    }
+
+    public long getInputsSent() {
+        return inputsSent.get();
+    }
+
+    public long getStatesReceived() {
+        return statesReceived.get();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+}
@@ -0,0 +1,150 @@
+package com.sodirea.yikes.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// adds bots at a steady rate over rampSeconds, keeps them all playing for holdSeconds, and prints a line every second of how many are connected,
+// how many messages went each way and how long the server took to run their inputs, so the point where latency takes off can be read straight
+// off the output. the bots' run() calls are spread over one scheduler thread per core, however many bots there are
+public class LoadTest {
+
+    public static final long REPORT_MILLIS = 1000;
+
+    // the threads the server does its work on, when it runs in this process. room-loop and matchmaker are named by the server, nioEventLoopGroup by netty
+    private static final String[] SERVER_THREADS = { "room-loop-", "matchmaker", "nioEventLoopGroup-" };
+
+    private final String url;
+    private final int botCount;
+    private final int rampSeconds;
+    private final int holdSeconds;
+    private final boolean serverInProcess;
+    private final LoadStats stats;
+    private final ThreadMXBean threads;
+
+    public LoadTest(String url, int botCount, int rampSeconds, int holdSeconds, boolean serverInProcess) {
+        this.url = url;
+        this.botCount = botCount;
+        this.rampSeconds = rampSeconds;
+        this.holdSeconds = holdSeconds;
+        this.serverInProcess = serverInProcess;
+        stats = new LoadStats();
+        threads = ManagementFactory.getThreadMXBean();
+    }
+
+    public void run() throws URISyntaxException, InterruptedException {
+        final AtomicInteger threadCount = new AtomicInteger(0);
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "bot-" + threadCount.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        List<Bot> bots = new ArrayList<Bot>(botCount);
+        long rampNanos = TimeUnit.SECONDS.toNanos(rampSeconds);
+        for (int i = 0; i < botCount; i++) {
+            final Bot bot = new Bot(i, url, stats);
+            bots.add(bot);
+            long delayNanos = botCount > 1 ? rampNanos * i / (botCount - 1) : 0;
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    bot.connect();
+                }
+            }, delayNanos, TimeUnit.NANOSECONDS);
+            scheduler.scheduleAtFixedRate(bot, delayNanos, TimeUnit.MILLISECONDS.toNanos(Bot.MESSAGE_INTERVAL_MILLIS), TimeUnit.NANOSECONDS);
+        }
+
+        System.out.println("seconds,connected,rooms joined,inputs/s,states/s,state bytes/s,p50 ms,p99 ms,max ms," + (serverInProcess ? "server cpu %" : "system cpu %"));
+        Histogram total = new Histogram(LoadStats.SIGNIFICANT_DIGITS);
+        Histogram interval = null;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(rampSeconds + holdSeconds);
+        long lastReport = start;
+        long lastInputs = 0;
+        long lastStates = 0;
+        long lastBytes = 0;
+        long lastServerCpu = serverCpuNanos();
+        while (System.nanoTime() < end) {
+            Thread.sleep(REPORT_MILLIS);
+            long now = System.nanoTime();
+            float seconds = (now - lastReport) / 1000000000f;
+            interval = stats.takeLatencies(interval);
+            total.add(interval);
+            long inputs = stats.getInputsSent();
+            long states = stats.getStatesReceived();
+            long bytes = stats.getBytesReceived();
+            float cpu;
+            if (serverInProcess) {
+                long serverCpu = serverCpuNanos();
+                cpu = 100f * (serverCpu - lastServerCpu) / (now - lastReport); // 100 per busy core, like top
+                lastServerCpu = serverCpu;
+            } else {
+                cpu = systemCpuPercent();
+            }
+            System.out.println(String.format("%.0f,%d,%d,%.0f,%.0f,%.0f,%.1f,%.1f,%.1f,%.0f",
+                    (now - start) / 1000000000f, stats.getConnections(), stats.getRoomsJoined(),
+                    (inputs - lastInputs) / seconds, (states - lastStates) / seconds, (bytes - lastBytes) / seconds,
+                    interval.getValueAtPercentile(50) / 1000f, interval.getValueAtPercentile(99) / 1000f, interval.getMaxValue() / 1000f, cpu));
+            lastReport = now;
+            lastInputs = inputs;
+            lastStates = states;
+            lastBytes = bytes;
+        }
+
+        scheduler.shutdownNow();
+        for (Bot bot : bots) {
+            bot.disconnect();
+        }
+        System.out.println();
+        System.out.println("Input to acknowledgement latency over the whole run, in milliseconds:");
+        total.outputPercentileDistribution(System.out, 1000.0);
+    }
+
+    // cpu time used so far by the server's threads, or 0 if it isn't in this process or the JVM can't measure it
+    private long serverCpuNanos() {
+        if (!serverInProcess || !threads.isThreadCpuTimeSupported()) {
+            return 0;
+        }
+        long total = 0;
+        for (long id : threads.getAllThreadIds()) {
+            ThreadInfo info = threads.getThreadInfo(id);
+            if (info == null) {
+                continue;
+            }
+            for (String prefix : SERVER_THREADS) {
+                if (info.getThreadName().startsWith(prefix)) {
+                    long time = threads.getThreadCpuTime(id);
+                    if (time > 0) {
+                        total += time;
+                    }
+                    break;
+                }
+            }
+        }
+        return total;
+    }
+
+    // the whole machine's cpu use, bots included, for when the server is a separate process on the same machine. -1 if the JVM doesn't say
+    private static float systemCpuPercent() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            double load = ((com.sun.management.OperatingSystemMXBean) os).getSystemCpuLoad();
+            return load < 0 ? -1 : (float) (load * 100 * os.getAvailableProcessors());
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,32 @@
+package com.sodirea.yikes.loadtest;
+
+import com.sodirea.yikes.server.GameServer;
+import com.sodirea.yikes.server.Room;
+
+public class LoadTestLauncher {
+	public static final int EMBEDDED_PORT = 5000;
+
+	// arguments: bots (64), ramp seconds (60), hold seconds (30), and the server url. with no url, a server is started in this process so its cpu use can be measured.
+	// "loss" and a fraction (0.2) instead checks the UDP transport on localhost with that much of its datagrams dropped each way, see LossTest, exiting with 1 if it fails
+	public static void main (String[] arg) throws Exception {
+		if (arg.length > 0 && arg[0].equals("loss")) {
+			boolean passed = new LossTest(arg.length > 1 ? Float.parseFloat(arg[1]) : 0.2f).run();
+			System.exit(passed ? 0 : 1);
+		}
+		int bots = arg.length > 0 ? Integer.parseInt(arg[0]) : 64;
+		int rampSeconds = arg.length > 1 ? Integer.parseInt(arg[1]) : 60;
+		int holdSeconds = arg.length > 2 ? Integer.parseInt(arg[2]) : 30;
+		String url = arg.length > 3 ? arg[3] : null;
+		GameServer server = null;
+		if (url == null) {
+			server = new GameServer(EMBEDDED_PORT, Runtime.getRuntime().availableProcessors(), Room.MAX_PLAYERS, GameServer.DEFAULT_MATCH_TIMEOUT_MILLIS);
+			server.start();
+			url = "http://localhost:" + EMBEDDED_PORT;
+		}
+		new LoadTest(url, bots, rampSeconds, holdSeconds, server != null).run();
+		if (server != null) {
+			server.stop();
+		}
+		System.exit(0); // the socket.io client keeps its own threads alive
+	}
+}
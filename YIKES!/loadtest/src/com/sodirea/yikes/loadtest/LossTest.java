@@ -0,0 +1,237 @@
+package com.sodirea.yikes.loadtest;
+
+import com.sodirea.yikes.net.DatagramTransport;
+import com.sodirea.yikes.net.InputBuffer;
+import com.sodirea.yikes.net.PacketReader;
+import com.sodirea.yikes.net.PacketWriter;
+import com.sodirea.yikes.net.Protocol;
+import com.sodirea.yikes.net.Transport;
+import com.sodirea.yikes.server.Connection;
+import com.sodirea.yikes.server.DatagramServer;
+import com.sodirea.yikes.states.MultiplayerState;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// checks the UDP transport end to end on localhost: a DatagramServer on its own, without any rooms, and one DatagramTransport dropping a loss fraction of the
+// datagrams each way. the client and the server each send the other RELIABLE_EVENTS reliable events, more than ReliableChannel.WINDOW so the overflow is
+// used too, and the client sends INPUT_STEPS input commands the way MultiplayerState does, repeating every one the server hasn't acknowledged yet, while the
+// server acknowledges the newest sequence it has everything up to. passes when every event arrived exactly once and in order, and every command arrived
+// intact, within TIMEOUT_SECONDS. run with: ./gradlew loadtest:run -Pargs="loss 0.2"
+public class LossTest {
+
+    public static final int PORT = 5001;
+    public static final int RELIABLE_EVENTS = 200;
+    public static final int INPUT_STEPS = 1200;
+    public static final int STEPS_PER_INPUT_MESSAGE = MultiplayerState.STEPS_PER_INPUT_MESSAGE;
+    public static final long STEP_MILLIS = 4; // four times the game's rate, so the run takes seconds rather than twenty of them
+    public static final long TIMEOUT_SECONDS = 30;
+    private static final String EVENT = "probe"; // followed by the event's number
+    private static final String ACK_EVENT = "worldState"; // one of the unreliable events, carrying only the acknowledged sequence here
+
+    private final float loss;
+    private final List<Integer> serverReceived; // reliable events in the order the server got them, under itself
+    private final List<Integer> clientReceived; // and the client
+    private final boolean[] inputsReceived; // written on the server's thread, under this
+    private final boolean[] inputsCorrupted;
+    private int serverAcknowledged; // the newest sequence the server has every command up to, on the server's thread
+    private volatile int clientAcknowledged; // as the client last heard it
+    private volatile Connection connection;
+    private final CountDownLatch connected;
+
+    public LossTest(float loss) {
+        this.loss = loss;
+        serverReceived = new ArrayList<Integer>();
+        clientReceived = new ArrayList<Integer>();
+        inputsReceived = new boolean[INPUT_STEPS];
+        inputsCorrupted = new boolean[INPUT_STEPS];
+        serverAcknowledged = -1;
+        clientAcknowledged = -1;
+        connected = new CountDownLatch(2);
+    }
+
+    // returns whether everything arrived
+    public boolean run() throws IOException, URISyntaxException, InterruptedException {
+        DatagramServer server = new DatagramServer(PORT, new DatagramServer.Listener() {
+            @Override
+            public void connected(Connection client) {
+                connection = client;
+                connected.countDown();
+            }
+
+            @Override
+            public void received(Connection client, String event, Object data) {
+                if (event.startsWith(EVENT)) {
+                    synchronized (serverReceived) {
+                        serverReceived.add(Integer.parseInt(event.substring(EVENT.length())));
+                    }
+                } else if (event.equals("input")) {
+                    receiveInput(client, (byte[]) data);
+                }
+            }
+
+            @Override
+            public void disconnected(Connection client) {
+            }
+        });
+        server.start();
+
+        DatagramTransport transport = new DatagramTransport(new URI(DatagramTransport.SCHEME + "://localhost:" + PORT), loss);
+        transport.on(Transport.CONNECT, new Transport.Listener() {
+            @Override
+            public void received(Object data) {
+                connected.countDown();
+            }
+        }).on(ACK_EVENT, new Transport.Listener() {
+            @Override
+            public void received(Object data) {
+                PacketReader in = new PacketReader();
+                if (Protocol.begin(in, (byte[]) data)) {
+                    clientAcknowledged = in.readVarInt() - 1;
+                }
+            }
+        });
+        for (int i = 0; i < RELIABLE_EVENTS; i++) {
+            final int number = i;
+            transport.on(EVENT + i, new Transport.Listener() {
+                @Override
+                public void received(Object data) {
+                    synchronized (clientReceived) {
+                        clientReceived.add(number);
+                    }
+                }
+            });
+        }
+        transport.connect();
+
+        boolean passed = false;
+        try {
+            if (!connected.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.out.println("Never connected");
+                return false;
+            }
+            for (int i = 0; i < RELIABLE_EVENTS; i++) {
+                transport.sendReliably(EVENT + i);
+                connection.send(EVENT + i, null);
+            }
+            sendInputs(transport);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            while (System.nanoTime() < deadline && !isComplete()) {
+                Thread.sleep(100);
+            }
+            passed = report();
+        } finally {
+            transport.disconnect();
+            server.stop();
+        }
+        return passed;
+    }
+
+    // steps through INPUT_STEPS commands, sending them like MultiplayerState.sendInputs does, then keeps repeating whatever is unacknowledged until the
+    // server has it all
+    private void sendInputs(Transport transport) throws InterruptedException {
+        InputBuffer pending = new InputBuffer(INPUT_STEPS);
+        PacketWriter writer = new PacketWriter();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        for (int step = 0; pending.size() > 0 || step < INPUT_STEPS; step++) {
+            if (System.nanoTime() > deadline) {
+                return;
+            }
+            int acknowledged = clientAcknowledged;
+            while (pending.size() > 0 && pending.getSequence(0) <= acknowledged) {
+                pending.removeFirst(1);
+            }
+            if (step < INPUT_STEPS) {
+                pending.add(step, jump(step), tilt(step));
+            }
+            if (pending.size() > 0 && step % STEPS_PER_INPUT_MESSAGE == STEPS_PER_INPUT_MESSAGE - 1) {
+                int first = Math.max(0, pending.size() - MultiplayerState.INPUT_REDUNDANCY);
+                Protocol.begin(writer).writeVarInt(0);
+                writer.writeVarInt(pending.getSequence(first));
+                writer.writeVarInt(pending.size() - first);
+                for (int n = first; n < pending.size(); n++) {
+                    Protocol.writeInput(writer, pending.getJump(n), pending.getTilt(n));
+                }
+                transport.send("input", writer);
+            }
+            Thread.sleep(STEP_MILLIS);
+        }
+    }
+
+    // on the server's thread, laid out like Room.input reads it
+    private synchronized void receiveInput(Connection client, byte[] message) {
+        PacketReader in = new PacketReader();
+        if (!Protocol.begin(in, message)) {
+            return;
+        }
+        in.readVarInt(); // the acknowledged snapshot, always 0 here
+        int sequence = in.readVarInt();
+        for (int count = in.readVarInt(); count > 0; count--, sequence++) {
+            boolean jump = (in.readByte() & Protocol.FLAG_JUMP) != 0;
+            float tilt = Protocol.readTilt(in);
+            if (sequence < 0 || sequence >= INPUT_STEPS) {
+                continue;
+            }
+            inputsReceived[sequence] = true;
+            if (jump != jump(sequence) || Math.abs(tilt - tilt(sequence)) > 1 / Protocol.TILT_SCALE) {
+                inputsCorrupted[sequence] = true;
+            }
+        }
+        while (serverAcknowledged + 1 < INPUT_STEPS && inputsReceived[serverAcknowledged + 1]) {
+            serverAcknowledged++;
+        }
+        PacketWriter out = new PacketWriter(8);
+        Protocol.begin(out).writeVarInt(serverAcknowledged + 1); // varints aren't signed, so nothing yet is 0
+        client.send(ACK_EVENT, out.toByteArray());
+    }
+
+    private static boolean jump(int sequence) {
+        return sequence % 7 == 0;
+    }
+
+    private static float tilt(int sequence) {
+        return (sequence % 50 - 25) / 10f;
+    }
+
+    private boolean isComplete() {
+        synchronized (serverReceived) {
+            synchronized (clientReceived) {
+                return serverReceived.size() >= RELIABLE_EVENTS && clientReceived.size() >= RELIABLE_EVENTS && clientAcknowledged == INPUT_STEPS - 1;
+            }
+        }
+    }
+
+    private boolean report() {
+        boolean passed = checkInOrder("client to server", serverReceived) & checkInOrder("server to client", clientReceived);
+        int missing = 0;
+        int corrupted = 0;
+        synchronized (this) {
+            for (int i = 0; i < INPUT_STEPS; i++) {
+                if (!inputsReceived[i]) {
+                    missing++;
+                }
+                if (inputsCorrupted[i]) {
+                    corrupted++;
+                }
+            }
+        }
+        System.out.println("Inputs: " + (INPUT_STEPS - missing) + " of " + INPUT_STEPS + " arrived, " + corrupted + " of them wrong");
+        return passed && missing == 0 && corrupted == 0;
+    }
+
+    private static boolean checkInOrder(String direction, List<Integer> received) {
+        synchronized (received) {
+            boolean inOrder = received.size() == RELIABLE_EVENTS;
+            for (int i = 0; i < received.size() && inOrder; i++) {
+                inOrder = received.get(i) == i;
+            }
+            System.out.println("Reliable events " + direction + ": " + received.size() + " of " + RELIABLE_EVENTS + " arrived, " + (inOrder ? "in order" : "NOT in order"));
+            return inOrder;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.sodirea.yikes.server;
+
+import java.util.UUID;
+
+// one client, however they reached the server. what the Matchmaker, RoomManager and Room hold, so a room doesn't care whether its players came over socket.io
+// (SocketIOConnection) or UDP (DatagramConnection)
+public interface Connection {
+
+    // stands for the client in rooms and is sent to the other players as their id
+    UUID getId();
+
+    // a byte[] is one of the frequent binary messages of Protocol, which a transport that can drops rather than delays. anything else goes as JSON and always
+    // arrives, in order. data may be null for an event without any
+    void send(String event, Object data);
+
+    boolean isOpen();
+}
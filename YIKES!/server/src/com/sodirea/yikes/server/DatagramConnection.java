@@ -0,0 +1,93 @@
+package com.sodirea.yikes.server;
+
+import com.sodirea.yikes.net.DatagramProtocol;
+import com.sodirea.yikes.net.PacketWriter;
+import com.sodirea.yikes.net.ReliableChannel;
+
+import java.net.SocketAddress;
+import java.util.UUID;
+
+// a client connected through the DatagramServer. sending is safe from any thread, since rooms send from their tick threads while the server's own thread
+// acknowledges, resends and sends heartbeats
+public class DatagramConnection implements Connection {
+
+    final SocketAddress address;
+    final ReliableChannel reliable;
+    final ReliableChannel.Sender sender;
+    final int[] receivedSequences; // the newest unreliable sequence received for each event, only touched on the server's thread
+    volatile long lastReceived;
+    volatile long lastSent;
+
+    private final UUID id;
+    private final DatagramServer server;
+    private final int[] sentSequences; // under this
+    private final PacketWriter writer; // under this
+    private volatile boolean open;
+
+    DatagramConnection(DatagramServer server, SocketAddress address, long now) {
+        this.server = server;
+        this.address = address;
+        id = UUID.randomUUID();
+        reliable = new ReliableChannel();
+        sender = new ReliableChannel.Sender() {
+            @Override
+            public void send(byte[] datagram, int length) {
+                transmit(datagram, length);
+            }
+        };
+        receivedSequences = new int[DatagramProtocol.UNRELIABLE_EVENTS.length];
+        sentSequences = new int[DatagramProtocol.UNRELIABLE_EVENTS.length];
+        writer = new PacketWriter();
+        lastReceived = now;
+        lastSent = now;
+        open = true;
+    }
+
+    @Override
+    public UUID getId() {
+        return id;
+    }
+
+    @Override
+    public void send(String event, Object data) {
+        if (!open) {
+            return;
+        }
+        if (data instanceof byte[]) {
+            int index = DatagramProtocol.unreliableEvent(event);
+            if (index < 0) {
+                throw new IllegalArgumentException(event + " isn't one of the binary messages");
+            }
+            synchronized (this) {
+                DatagramProtocol.writeUnreliable(writer, index, ++sentSequences[index], (byte[]) data);
+                transmit(writer.getBuffer(), writer.size());
+            }
+        } else {
+            reliable.send(event, data == null ? null : server.toJson(data), System.nanoTime(), sender);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    synchronized void sendControl(int kind) {
+        DatagramProtocol.writeControl(writer, kind);
+        transmit(writer.getBuffer(), writer.size());
+    }
+
+    synchronized void sendAck() {
+        DatagramProtocol.writeAck(writer, reliable.getAcknowledgement());
+        transmit(writer.getBuffer(), writer.size());
+    }
+
+    void close() {
+        open = false;
+    }
+
+    private void transmit(byte[] datagram, int length) {
+        lastSent = System.nanoTime();
+        server.transmit(address, datagram, length);
+    }
+}
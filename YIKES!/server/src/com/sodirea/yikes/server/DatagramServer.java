@@ -0,0 +1,207 @@
+package com.sodirea.yikes.server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sodirea.yikes.net.DatagramProtocol;
+import com.sodirea.yikes.net.PacketReader;
+import com.sodirea.yikes.net.Protocol;
+import com.sodirea.yikes.net.ReliableChannel;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// serves clients using DatagramTransport on a UDP port, see DatagramProtocol. one thread, named "datagrams", receives everything, answers CONNECT, delivers
+// messages to the listener, resends unacknowledged reliable messages, sends heartbeats and drops clients that have gone quiet
+public class DatagramServer {
+
+    public interface Listener {
+        void connected(Connection connection);
+
+        // data is the message for binary events, and the JSON text (or null) for the rest
+        void received(Connection connection, String event, Object data);
+
+        void disconnected(Connection connection);
+    }
+
+    private static final Logger LOG = Logger.getLogger(DatagramServer.class.getName());
+
+    private final int port;
+    private final Listener listener;
+    private final ObjectMapper json; // the same JSON socket.io would send, netty-socketio uses Jackson too
+    private final Map<SocketAddress, DatagramConnection> peers; // only touched on the server's thread
+    private final PacketReader reader;
+    private final List<ReliableChannel.Message> deliverable;
+    private DatagramChannel channel;
+    private Selector selector;
+    private volatile boolean running;
+
+    public DatagramServer(int port, Listener listener) {
+        this.port = port;
+        this.listener = listener;
+        json = new ObjectMapper();
+        peers = new HashMap<SocketAddress, DatagramConnection>();
+        reader = new PacketReader();
+        deliverable = new ArrayList<ReliableChannel.Message>();
+        running = false;
+    }
+
+    public void start() throws IOException {
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.socket().bind(new InetSocketAddress(port));
+        selector = Selector.open();
+        channel.register(selector, SelectionKey.OP_READ);
+        running = true;
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runLoop();
+            }
+        }, "datagrams").start();
+        LOG.info("Listening for datagrams on port " + port);
+    }
+
+    public void stop() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+    }
+
+    // from any thread. a datagram that fails to send is as good as lost, which every message already copes with
+    void transmit(SocketAddress to, byte[] datagram, int length) {
+        try {
+            channel.send(ByteBuffer.wrap(datagram, 0, length), to);
+        } catch (IOException e) {
+            // lost
+        }
+    }
+
+    String toJson(Object data) {
+        try {
+            return json.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Can't send " + data + " as JSON", e);
+        }
+    }
+
+    private void runLoop() {
+        ByteBuffer buffer = ByteBuffer.allocate(DatagramProtocol.MAX_DATAGRAM);
+        try {
+            while (running) {
+                selector.select(DatagramProtocol.POLL_MILLIS);
+                selector.selectedKeys().clear();
+                SocketAddress from;
+                while ((from = channel.receive(buffer)) != null) {
+                    try {
+                        receive(from, buffer.array(), buffer.position());
+                    } catch (RuntimeException e) {
+                        LOG.log(Level.WARNING, "Dropped a datagram from " + from, e);
+                    }
+                    buffer.clear();
+                }
+                long now = System.nanoTime();
+                Iterator<DatagramConnection> it = peers.values().iterator();
+                while (it.hasNext()) {
+                    DatagramConnection connection = it.next();
+                    if (now - connection.lastReceived > DatagramProtocol.TIMEOUT_NANOS) {
+                        it.remove();
+                        drop(connection);
+                        continue;
+                    }
+                    connection.reliable.resend(now, connection.sender);
+                    if (now - connection.lastSent >= DatagramProtocol.KEEPALIVE_NANOS) {
+                        connection.sendAck();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOG.log(Level.SEVERE, "Stopped listening for datagrams", e);
+        } finally {
+            for (DatagramConnection connection : peers.values()) {
+                drop(connection);
+            }
+            peers.clear();
+            try {
+                selector.close();
+                channel.close();
+            } catch (IOException e) {
+                // nothing left to do with them
+            }
+        }
+    }
+
+    private void receive(SocketAddress from, byte[] datagram, int length) {
+        long now = System.nanoTime();
+        reader.reset(datagram, length);
+        try {
+            int kind = reader.readByte();
+            DatagramConnection connection = peers.get(from);
+            if (kind == DatagramProtocol.CONNECT) {
+                if (reader.readByte() != Protocol.VERSION) {
+                    return; // built from a different version. never answering makes it give up, like a socket.io client would drop our messages
+                }
+                if (connection == null) {
+                    connection = new DatagramConnection(this, from, now);
+                    peers.put(from, connection);
+                    listener.connected(connection);
+                }
+                connection.lastReceived = now;
+                connection.sendControl(DatagramProtocol.ACCEPT); // every time, since the last ACCEPT may have been lost
+                return;
+            }
+            if (connection == null) {
+                return; // never connected, or already dropped
+            }
+            connection.lastReceived = now;
+            switch (kind) {
+                case DatagramProtocol.DISCONNECT:
+                    peers.remove(from);
+                    drop(connection);
+                    break;
+                case DatagramProtocol.RELIABLE:
+                    connection.reliable.received(reader.readVarInt(), reader.readString(), reader.readString(), deliverable);
+                    connection.sendAck();
+                    for (int i = 0; i < deliverable.size(); i++) {
+                        ReliableChannel.Message message = deliverable.get(i);
+                        listener.received(connection, message.event, message.data.length() == 0 ? null : message.data);
+                    }
+                    deliverable.clear();
+                    break;
+                case DatagramProtocol.ACK:
+                    connection.reliable.acknowledged(reader.readVarInt());
+                    break;
+                case DatagramProtocol.UNRELIABLE:
+                    int event = reader.readByte();
+                    int sequence = reader.readVarInt();
+                    if (event >= connection.receivedSequences.length || sequence <= connection.receivedSequences[event]) {
+                        return; // overtaken by a newer one, so it is dropped rather than delivered late
+                    }
+                    connection.receivedSequences[event] = sequence;
+                    listener.received(connection, DatagramProtocol.UNRELIABLE_EVENTS[event], reader.readBytes(reader.remaining()));
+                    break;
+                default:
+                    break;
+            }
+        } finally {
+            deliverable.clear();
+        }
+    }
+
+    private void drop(DatagramConnection connection) {
+        connection.close();
+        listener.disconnected(connection);
+    }
+}
@@ -0,0 +1,204 @@
+package com.sodirea.yikes.server;
+
+import com.corundumstudio.socketio.AckRequest;
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.corundumstudio.socketio.listener.ConnectListener;
+import com.corundumstudio.socketio.listener.DataListener;
+import com.corundumstudio.socketio.listener.DisconnectListener;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+// the authoritative multiplayer server. speaks the same socket.io events as MultiplayerState, but runs the game itself instead of relaying between clients.
+// with listenForDatagrams it takes the same messages over UDP too, see DatagramServer, and matches players from either into the same rooms
+public class GameServer {
+
+    public static final long DEFAULT_MATCH_TIMEOUT_MILLIS = 3000;
+    public static final long MATCH_POLL_MILLIS = 100; // how often players who have waited too long are checked for
+    public static final long WAIT_REPORT_SECONDS = 60;
+
+    private static final Logger LOG = Logger.getLogger(GameServer.class.getName());
+
+    private final SocketIOServer server;
+    private final RoomManager rooms;
+    private final Map<UUID, Connection> socketConnections;
+    private final Matchmaker<Connection> matchmaker;
+    private final ScheduledExecutorService matchmaking;
+    private DatagramServer datagrams; // null unless listenForDatagrams was called
+    private long reportedMatches;
+
+    // rooms are spread over roomLoops threads, see RoomManager. new connections wait until matchSize of them can share a room, or matchTimeoutMillis
+    public GameServer(int port, int roomLoops, int matchSize, long matchTimeoutMillis) {
+        Configuration config = new Configuration();
+        config.setPort(port);
+        server = new SocketIOServer(config);
+        rooms = new RoomManager(roomLoops);
+        socketConnections = new ConcurrentHashMap<UUID, Connection>();
+        matchmaker = new Matchmaker<Connection>(matchSize, TimeUnit.MILLISECONDS.toNanos(matchTimeoutMillis), new Matchmaker.Listener<Connection>() {
+            @Override
+            public void matched(List<Connection> players) {
+                rooms.open(players);
+            }
+        });
+        matchmaking = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable task) {
+                return new Thread(task, "matchmaker");
+            }
+        });
+        datagrams = null;
+        reportedMatches = 0;
+
+        server.addConnectListener(new ConnectListener() {
+            @Override
+            public void onConnect(SocketIOClient client) {
+                Connection connection = new SocketIOConnection(client);
+                socketConnections.put(client.getSessionId(), connection);
+                connected(connection);
+            }
+        });
+        server.addDisconnectListener(new DisconnectListener() {
+            @Override
+            public void onDisconnect(SocketIOClient client) {
+                Connection connection = socketConnections.remove(client.getSessionId());
+                if (connection != null) {
+                    disconnected(connection);
+                }
+            }
+        });
+        // input is binary, see Protocol. it is decoded on the room's tick thread
+        server.addEventListener("input", byte[].class, new DataListener<byte[]>() {
+            @Override
+            public void onData(SocketIOClient client, byte[] data, AckRequest ackSender) {
+                received(socketConnections.get(client.getSessionId()), "input", data);
+            }
+        });
+        server.addEventListener("clockPing", byte[].class, new DataListener<byte[]>() {
+            @Override
+            public void onData(SocketIOClient client, byte[] data, AckRequest ackSender) {
+                received(socketConnections.get(client.getSessionId()), "clockPing", data);
+            }
+        });
+        server.addEventListener("startCamera", Object.class, new DataListener<Object>() {
+            @Override
+            public void onData(SocketIOClient client, Object data, AckRequest ackSender) {
+                received(socketConnections.get(client.getSessionId()), "startCamera", data);
+            }
+        });
+        server.addEventListener("addToDeathCounter", Object.class, new DataListener<Object>() {
+            @Override
+            public void onData(SocketIOClient client, Object data, AckRequest ackSender) {
+                received(socketConnections.get(client.getSessionId()), "addToDeathCounter", data);
+            }
+        });
+    }
+
+    // also serves clients using DatagramTransport on the given UDP port, alongside socket.io. call before start()
+    public void listenForDatagrams(int port) {
+        datagrams = new DatagramServer(port, new DatagramServer.Listener() {
+            @Override
+            public void connected(Connection connection) {
+                GameServer.this.connected(connection);
+            }
+
+            @Override
+            public void received(Connection connection, String event, Object data) {
+                GameServer.this.received(connection, event, data);
+            }
+
+            @Override
+            public void disconnected(Connection connection) {
+                GameServer.this.disconnected(connection);
+            }
+        });
+    }
+
+    public void start() {
+        server.start();
+        if (datagrams != null) {
+            try {
+                datagrams.start();
+            } catch (IOException e) {
+                throw new IllegalStateException("Couldn't listen for datagrams", e);
+            }
+        }
+        matchmaking.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                matchmaker.poll(System.nanoTime());
+            }
+        }, MATCH_POLL_MILLIS, MATCH_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        matchmaking.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                reportWaits();
+            }
+        }, WAIT_REPORT_SECONDS, WAIT_REPORT_SECONDS, TimeUnit.SECONDS);
+        LOG.info("Server is now running on port " + server.getConfiguration().getPort());
+    }
+
+    public void stop() {
+        server.stop();
+        if (datagrams != null) {
+            datagrams.stop();
+        }
+        matchmaking.shutdown();
+        rooms.shutdown();
+    }
+
+    private void connected(Connection client) {
+        LOG.info("Player Connected: " + client.getId());
+        matchmaker.enqueue(client, System.nanoTime());
+    }
+
+    private void disconnected(Connection client) {
+        LOG.info("Player Disconnected: " + client.getId());
+        if (!matchmaker.remove(client)) {
+            rooms.leave(client);
+        }
+    }
+
+    // a message from a client, whichever way they are connected. binary messages are byte[]s, see Protocol
+    private void received(Connection client, String event, Object data) {
+        Room room = client == null ? null : rooms.roomOf(client);
+        if (room == null) {
+            return;
+        }
+        if (event.equals("input") && data instanceof byte[]) {
+            room.input(client, (byte[]) data);
+        } else if (event.equals("clockPing") && data instanceof byte[]) {
+            try {
+                room.ping(client, (byte[]) data);
+            } catch (IllegalArgumentException e) {
+                LOG.warning("Dropped a malformed ping from " + client.getId());
+            }
+        } else if (event.equals("startCamera")) {
+            room.startCamera();
+        } else if (event.equals("addToDeathCounter")) {
+            room.playerDied(client);
+        }
+    }
+
+    // logs how long players waited to be matched, whenever anyone has been since the last report
+    private void reportWaits() {
+        long matches = matchmaker.getMatchesFormed();
+        if (matches == reportedMatches) {
+            return;
+        }
+        reportedMatches = matches;
+        LOG.info("Matchmaking wait p50 " + TimeUnit.NANOSECONDS.toMillis(matchmaker.getWaitPercentile(50))
+                + " ms, p90 " + TimeUnit.NANOSECONDS.toMillis(matchmaker.getWaitPercentile(90))
+                + " ms, p99 " + TimeUnit.NANOSECONDS.toMillis(matchmaker.getWaitPercentile(99))
+                + " ms, " + matches + " rooms formed, " + matchmaker.getWaitingCount() + " waiting");
+    }
+}
@@ -0,0 +1,114 @@
+package com.sodirea.yikes.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// queues players and hands them out in batches, each of which becomes a room. a batch forms as soon as matchSize players are waiting, or once the
+// oldest has waited timeoutNanos, with however many are there. it knows nothing about sockets or rooms, and the time is always passed in, so it can
+// just as well be driven in-process by a test or a load generator as by GameServer
+public class Matchmaker<T> {
+
+    public static final int WAIT_SAMPLES = 1024; // how many of the latest waits the percentiles are taken over
+
+    public interface Listener<T> {
+        // called with the players for one new room, oldest first, outside the matchmaker's lock
+        void matched(List<T> players);
+    }
+
+    private final int matchSize;
+    private final long timeoutNanos;
+    private final Listener<T> listener;
+    private final Map<T, Long> waiting; // when each player was queued, oldest first. guarded by this
+    private final long[] waits; // the latest waits in nanoseconds, a ring. guarded by this
+    private int nextWait;
+    private int waitCount; // how much of waits is filled in
+    private long matchesFormed;
+
+    public Matchmaker(int matchSize, long timeoutNanos, Listener<T> listener) {
+        if (matchSize < 1) {
+            throw new IllegalArgumentException("matchSize must be at least 1, was " + matchSize);
+        }
+        this.matchSize = matchSize;
+        this.timeoutNanos = timeoutNanos;
+        this.listener = listener;
+        waiting = new LinkedHashMap<T, Long>();
+        waits = new long[WAIT_SAMPLES];
+        nextWait = 0;
+        waitCount = 0;
+        matchesFormed = 0;
+    }
+
+    // queues the player, matching them straight away if that fills a batch
+    public void enqueue(T player, long now) {
+        List<T> batch = null;
+        synchronized (this) {
+            waiting.put(player, now);
+            if (waiting.size() >= matchSize) {
+                batch = takeBatch(now);
+            }
+        }
+        if (batch != null) {
+            listener.matched(batch);
+        }
+    }
+
+    // takes the player out of the queue. returns false if they weren't waiting, e.g. because they have already been matched
+    public synchronized boolean remove(T player) {
+        return waiting.remove(player) != null;
+    }
+
+    // matches whoever has been waiting too long. call this regularly, a fraction of timeoutNanos apart
+    public void poll(long now) {
+        List<T> batch;
+        while ((batch = takeTimedOut(now)) != null) {
+            listener.matched(batch);
+        }
+    }
+
+    public synchronized int getWaitingCount() {
+        return waiting.size();
+    }
+
+    public synchronized long getMatchesFormed() {
+        return matchesFormed;
+    }
+
+    // the given percentile (0 to 100) of the latest WAIT_SAMPLES waits in the queue, in nanoseconds, or 0 before anyone has been matched
+    public synchronized long getWaitPercentile(double percentile) {
+        int count = waitCount;
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(waits, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, rank))];
+    }
+
+    private synchronized List<T> takeTimedOut(long now) {
+        if (waiting.isEmpty() || now - waiting.values().iterator().next() < timeoutNanos) {
+            return null;
+        }
+        return takeBatch(now);
+    }
+
+    // takes up to matchSize of the oldest players out of the queue, recording how long each waited
+    private List<T> takeBatch(long now) {
+        List<T> batch = new ArrayList<T>(Math.min(matchSize, waiting.size()));
+        Iterator<Map.Entry<T, Long>> entries = waiting.entrySet().iterator();
+        while (entries.hasNext() && batch.size() < matchSize) {
+            Map.Entry<T, Long> entry = entries.next();
+            batch.add(entry.getKey());
+            waits[nextWait] = now - entry.getValue();
+            nextWait = (nextWait + 1) % waits.length;
+            waitCount = Math.min(waitCount + 1, waits.length);
+            entries.remove();
+        }
+        matchesFormed++;
+        return batch;
+    }
+}
@@ -0,0 +1,13 @@
+package com.sodirea.yikes.server;
+
+// a player already in the room, as sent in getPlayers. where their ball is comes in the new client's first worldState, which is always a full snapshot
+public class PlayerState {
+
+    public String id;
+    public int number;
+
+    public PlayerState(Seat seat) {
+        id = seat.player.getId();
+        number = seat.number;
+    }
+}
@@ -0,0 +1,335 @@
+package com.sodirea.yikes.server;
+
+import com.sodirea.yikes.net.InputBuffer;
+import com.sodirea.yikes.net.PacketReader;
+import com.sodirea.yikes.net.PacketWriter;
+import com.sodirea.yikes.net.Protocol;
+import com.sodirea.yikes.net.WorldSnapshot;
+import com.sodirea.yikes.sim.InputCommand;
+import com.sodirea.yikes.sim.PhysicsClock;
+import com.sodirea.yikes.sim.Simulation;
+import com.sodirea.yikes.sim.SimulationAdapter;
+import com.sodirea.yikes.sprites.Ball;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// one match: a Simulation shared by a batch of up to MAX_PLAYERS clients from the Matchmaker. everything in here runs on the room's tick thread; network callbacks hand work over through post()
+public class Room extends SimulationAdapter implements Runnable {
+
+    public static final int MAX_PLAYERS = 8;
+    public static final int SNAPSHOT_HISTORY = 32; // over 1.6 seconds of world states a client's acknowledgement can lag behind before they are sent full snapshots again
+    public static final float VIEW_MARGIN = 200; // how far above or below the camera's view a ball still counts as in view
+    public static final int OUT_OF_VIEW_DIVISOR = 4; // balls out of view are only refreshed in every 4th world state
+    public static final int CAMERA_START_DELAY_STEPS = 15; // a quarter of a second, longer than the trip to any client that can keep up, so they all hear which step the camera starts on before it comes
+    public static final int MAX_INPUT_BACKLOG = 6; // commands a client can get ahead by before the extra ones are merged, so a burst of late messages doesn't leave their ball lagging behind
+
+    private static final Logger LOG = Logger.getLogger(Room.class.getName());
+
+    private final String name;
+    private final RoomManager manager;
+    private final Queue<Runnable> inbox;
+    private final Map<UUID, Seat> seats;
+    private final AtomicInteger occupants; // clients placed in this room that haven't left, counted as soon as they are placed rather than when their join runs
+    private final PacketReader reader; // decodes incoming binary messages, only on the tick thread
+    private final PacketWriter writer;
+    private final WorldSnapshot world; // every ball, quantized once per tick for all the clients getting a world state
+    private final long openedAt; // System.nanoTime() when the room opened, the zero of its clock. step n runs n * STEP_INTERVAL after it
+    private Simulation sim;
+    private int seatsCreated;
+    private long tick;
+    private boolean finished; // true once everyone has died and been sent back to the menu
+    private volatile boolean closed;
+
+    public Room(String name, RoomManager manager) {
+        this.name = name;
+        this.manager = manager;
+        inbox = new ConcurrentLinkedQueue<Runnable>();
+        seats = new HashMap<UUID, Seat>();
+        reader = new PacketReader();
+        writer = new PacketWriter();
+        world = new WorldSnapshot(MAX_PLAYERS);
+        seatsCreated = 0;
+        occupants = new AtomicInteger(0);
+        sim = new Simulation(this);
+        sim.setCameraStartDelay(CAMERA_START_DELAY_STEPS);
+        openedAt = System.nanoTime();
+        tick = 0;
+        finished = false;
+        closed = false;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getOccupants() {
+        return occupants.get();
+    }
+
+    // queues work to run on the tick thread before the next step
+    public void post(Runnable task) {
+        inbox.add(task);
+    }
+
+    // one fixed step of the match, called STEP_INTERVAL apart by the RoomManager
+    @Override
+    public void run() {
+        if (closed) {
+            return;
+        }
+        try {
+            Runnable task;
+            while ((task = inbox.poll()) != null) {
+                try {
+                    task.run();
+                } catch (IllegalArgumentException e) {
+                    // a truncated or malformed binary message only costs that one message
+                    LOG.log(Level.WARNING, "Dropped a message in " + name, e);
+                }
+            }
+            if (closed) {
+                return;
+            }
+            for (Seat seat : seats.values()) {
+                applyPendingInput(seat);
+            }
+            sim.step(PhysicsClock.STEP_INTERVAL);
+            tick++;
+            broadcastWorld();
+            // everyone is dead, so send them all back to the menu. the room closes once they have disconnected
+            if (!finished && sim.isEveryoneDead()) {
+                finished = true;
+                sendToEveryone("resetState", null);
+            }
+        } catch (RuntimeException e) {
+            // an exception would cancel the room's schedule and leave its players frozen, so log it and keep ticking
+            LOG.log(Level.SEVERE, "Error ticking " + name, e);
+        }
+    }
+
+    // tells the client which room they are in and sends them everything already in it, then adds their ball
+    public void join(final Connection client) {
+        occupants.incrementAndGet();
+        post(new Runnable() {
+            @Override
+            public void run() {
+                String id = client.getId().toString();
+                client.send("room", Collections.singletonMap("id", name));
+                client.send("socketID", Collections.singletonMap("id", id));
+                List<PlayerState> existingPlayers = new ArrayList<PlayerState>();
+                for (Seat seat : seats.values()) {
+                    existingPlayers.add(new PlayerState(seat));
+                }
+                client.send("getPlayers", existingPlayers);
+                // the client works out the whole course from the seed, so platforms and boulders never have to be sent. as a string, since JSON numbers can't hold every long
+                client.send("level", Collections.singletonMap("seed", Long.toString(sim.getLevel().getSeed())));
+                Seat seat = new Seat(client, sim.addPlayer(id, false), seatsCreated++, SNAPSHOT_HISTORY, MAX_PLAYERS);
+                Map<String, Object> newPlayer = new HashMap<String, Object>();
+                newPlayer.put("id", id);
+                newPlayer.put("number", seat.number);
+                sendToEveryone("newPlayer", newPlayer);
+                seats.put(client.getId(), seat);
+            }
+        });
+    }
+
+    public void leave(final Connection client) {
+        occupants.decrementAndGet();
+        post(new Runnable() {
+            @Override
+            public void run() {
+                Seat seat = seats.remove(client.getId());
+                if (seat != null) {
+                    logBandwidth(seat);
+                    sim.removePlayer(seat.player);
+                    sendToEveryone("playerDisconnected", Collections.singletonMap("id", seat.player.getId()));
+                }
+                if (seats.isEmpty()) {
+                    manager.closeIfEmpty(Room.this);
+                }
+            }
+        });
+    }
+
+    // a client's taps and tilt, one command per step they simulated. they are queued and run one per tick, see applyPendingInput
+    public void input(final Connection client, final byte[] message) {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                Seat seat = seats.get(client.getId());
+                if (seat == null || !Protocol.begin(reader, message)) {
+                    return;
+                }
+                int acknowledged = reader.readVarInt();
+                if (acknowledged > seat.acknowledgedSnapshot && acknowledged <= seat.lastView) {
+                    seat.acknowledgedSnapshot = acknowledged;
+                    seat.sendRate.acknowledged(acknowledged, System.nanoTime());
+                }
+                int sequence = reader.readVarInt();
+                for (int count = reader.readVarInt(); count > 0; count--, sequence++) {
+                    boolean jump = (reader.readByte() & Protocol.FLAG_JUMP) != 0;
+                    float tilt = Protocol.readTilt(reader);
+                    if (sequence > seat.lastQueuedSequence && seat.pendingInputs.add(sequence, jump, tilt)) {
+                        seat.lastQueuedSequence = sequence;
+                    }
+                }
+            }
+        });
+    }
+
+    // answers a clock sync ping right away on the calling network thread rather than on the next tick, which would add up to a step to the round trip
+    public void ping(Connection client, byte[] message) {
+        PacketReader in = new PacketReader();
+        if (!Protocol.begin(in, message)) {
+            return;
+        }
+        int id = in.readVarInt();
+        PacketWriter out = new PacketWriter(16);
+        Protocol.begin(out).writeVarInt(id);
+        out.writeVarLong((System.nanoTime() - openedAt) / 1000);
+        client.send("clockPong", out.toByteArray());
+    }
+
+    public void startCamera() {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                sim.startCamera();
+            }
+        });
+    }
+
+    public void playerDied(final Connection client) {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                Seat seat = seats.get(client.getId());
+                if (seat != null) {
+                    sim.kill(seat.player);
+                }
+            }
+        });
+    }
+
+    // runs the client's next command this tick. with nothing queued, the player keeps the last tilt they sent
+    private void applyPendingInput(Seat seat) {
+        InputBuffer pending = seat.pendingInputs;
+        InputCommand input = seat.player.getInput();
+        while (pending.size() > 0) {
+            if (pending.getJump(0)) {
+                input.jump = true; // stays set until the step uses it
+            }
+            input.tilt = pending.getTilt(0);
+            seat.lastAppliedSequence = pending.getSequence(0);
+            pending.removeFirst(1);
+            if (pending.size() <= MAX_INPUT_BACKLOG) {
+                break;
+            }
+        }
+    }
+
+    // sends a worldState to every client whose SendRate says one is due this tick. each holds the balls that client is interested in, as differences from the
+    // last one they acknowledged: their own ball every time, other balls in view every time and out of view ones in every OUT_OF_VIEW_DIVISOR-th, and dead
+    // balls never. balls that haven't changed since the baseline cost nothing, and a client whose acknowledgement is missing or too old to still be in their
+    // history gets a full snapshot instead
+    private void broadcastWorld() {
+        long now = System.nanoTime();
+        boolean quantized = false;
+        for (Seat seat : seats.values()) {
+            if (!seat.sendRate.isDue(tick, now)) {
+                continue;
+            }
+            if (!quantized) {
+                quantizeWorld();
+                quantized = true;
+            }
+            WorldSnapshot previous = seat.views.get(seat.lastView);
+            WorldSnapshot view = seat.views.add(++seat.lastView);
+            view.origin = world.origin;
+            int rebasedY = previous == null ? 0 : Protocol.quantizeY((previous.origin - view.origin) * Simulation.PLATFORM_INTERVALS); // moves a ball as last sent to the new origin
+            boolean refreshOutOfView = seat.lastView % OUT_OF_VIEW_DIVISOR == 0;
+            for (Seat other : seats.values()) {
+                if (other != seat && other.player.isDead()) {
+                    continue;
+                }
+                int i = world.indexOf(other.number);
+                int j = previous == null ? -1 : previous.indexOf(other.number);
+                if (other == seat || refreshOutOfView || j < 0 || isInView(other)) {
+                    view.put(other.number, world.getX(i), world.getY(i), world.getVelocityX(i), world.getVelocityY(i));
+                } else {
+                    view.put(other.number, previous.getX(j), previous.getY(j) + rebasedY, previous.getVelocityX(j), previous.getVelocityY(j)); // as last sent, so it costs nothing
+                }
+            }
+            WorldSnapshot baseline = seat.views.get(seat.acknowledgedSnapshot);
+            Protocol.begin(writer).writeVarInt(view.id);
+            writer.writeVarInt(baseline == null ? 0 : baseline.id);
+            writer.writeVarInt(seat.number);
+            writer.writeVarInt(seat.lastAppliedSequence + 1);
+            writer.writeVarInt(view.origin);
+            Protocol.writeSnapshot(writer, view, baseline);
+            seat.connection.send("worldState", writer.toByteArray());
+            seat.sendRate.sent(view.id, writer.size(), tick, now);
+            seat.bytesSent += writer.size();
+            seat.snapshotsSent++;
+            if (baseline == null) {
+                seat.fullSnapshotsSent++;
+            }
+        }
+    }
+
+    private void quantizeWorld() {
+        world.reset(0);
+        world.origin = sim.getOriginRow();
+        for (Seat seat : seats.values()) {
+            Ball ball = seat.player.getBall();
+            // where the body is after this tick's world step, which is what the client records after running the same input, see MultiplayerState.reconcile
+            world.put(seat.number, Protocol.quantizeX(ball.getBodyX()), Protocol.quantizeY(ball.getBodyY()),
+                    Protocol.quantizeVelocity(ball.getBodyLinearVelocity().x), Protocol.quantizeVelocity(ball.getBodyLinearVelocity().y));
+        }
+    }
+
+    // whether the seat's ball is on screen, or nearly. everyone shares the one camera, so this is the same for every client
+    private boolean isInView(Seat seat) {
+        float y = seat.player.getBall().getPosition().y;
+        return Math.abs(y - sim.getCameraY()) <= Simulation.HEIGHT / 2 + VIEW_MARGIN;
+    }
+
+    private void logBandwidth(Seat seat) {
+        float seconds = (System.nanoTime() - seat.joinedAt) / 1000000000f;
+        if (seat.snapshotsSent == 0 || seconds <= 0) {
+            return;
+        }
+        LOG.info(seat.player.getId() + " in " + name + " was sent " + seat.snapshotsSent + " world states (" + seat.fullSnapshotsSent + " full), "
+                + seat.bytesSent / seat.snapshotsSent + " bytes each on average, " + Math.round(seat.bytesSent / seconds) + " bytes/s. last round trip "
+                + seat.sendRate.getRoundTrip() / 1000000 + " ms, delivery " + Math.round(seat.sendRate.getDeliveryRate()) + " bytes/s, sending every "
+                + seat.sendRate.getInterval() + " ticks");
+    }
+
+    @Override
+    public void cameraStarted() {
+        sendToEveryone("startCamera", Collections.singletonMap("step", sim.getCameraStartStep()));
+    }
+
+    // everyone seated so far. only on the tick thread
+    private void sendToEveryone(String event, Object data) {
+        for (Seat seat : seats.values()) {
+            seat.connection.send(event, data);
+        }
+    }
+
+    // only called on the tick thread, by the RoomManager once no one else can be placed here
+    void close() {
+        closed = true;
+        sim.dispose();
+    }
+}
@@ -0,0 +1,121 @@
+package com.sodirea.yikes.server;
+
+import com.sodirea.yikes.sim.PhysicsClock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+// opens a room for each batch of players the Matchmaker forms and closes it once they have all left. rooms are spread over a fixed number of event loop threads,
+// normally one per core. each room stays on the loop it was opened on, so a room's Box2D world is only ever touched by one thread
+public class RoomManager {
+
+    public static final long TICK_MICROS = (long) (PhysicsClock.STEP_INTERVAL * 1000000);
+
+    private static final Logger LOG = Logger.getLogger(RoomManager.class.getName());
+
+    private final ScheduledExecutorService[] loops;
+    private final int[] roomsPerLoop; // guarded by this
+    private final List<Room> rooms; // guarded by this
+    private final Map<Room, Placement> placements;
+    private final Map<UUID, Room> roomsByClient;
+    private int roomsCreated;
+
+    // where a room is ticking
+    private static class Placement {
+        final int loop;
+        final ScheduledFuture<?> schedule;
+
+        Placement(int loop, ScheduledFuture<?> schedule) {
+            this.loop = loop;
+            this.schedule = schedule;
+        }
+    }
+
+    public RoomManager(int loopCount) {
+        loops = new ScheduledExecutorService[loopCount];
+        for (int i = 0; i < loopCount; i++) {
+            final String threadName = "room-loop-" + i;
+            loops[i] = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable task) {
+                    return new Thread(task, threadName);
+                }
+            });
+        }
+        roomsPerLoop = new int[loopCount];
+        rooms = new ArrayList<Room>();
+        placements = new ConcurrentHashMap<Room, Placement>();
+        roomsByClient = new ConcurrentHashMap<UUID, Room>();
+        roomsCreated = 0;
+    }
+
+    // opens a room for a batch from the Matchmaker on the least busy loop, and puts the players in it
+    public synchronized Room open(List<Connection> clients) {
+        Room room = new Room("room-" + roomsCreated++, this);
+        rooms.add(room);
+        int loop = 0;
+        for (int i = 1; i < loops.length; i++) {
+            if (roomsPerLoop[i] < roomsPerLoop[loop]) {
+                loop = i;
+            }
+        }
+        roomsPerLoop[loop]++;
+        placements.put(room, new Placement(loop, loops[loop].scheduleAtFixedRate(room, 0, TICK_MICROS, TimeUnit.MICROSECONDS)));
+        LOG.info("Opened " + room.getName() + " for " + clients.size() + " players on loop " + loop + ", " + rooms.size() + " rooms running");
+        for (Connection client : clients) {
+            roomsByClient.put(client.getId(), room);
+            room.join(client);
+            // they may have disconnected while being matched, after leave() found no room for them
+            if (!client.isOpen()) {
+                leave(client);
+            }
+        }
+        return room;
+    }
+
+    public void leave(Connection client) {
+        Room room = roomsByClient.remove(client.getId());
+        if (room != null) {
+            room.leave(client);
+        }
+    }
+
+    // the room the client is playing in, or null if they have already left
+    public Room roomOf(Connection client) {
+        return roomsByClient.get(client.getId());
+    }
+
+    public synchronized int getRoomCount() {
+        return rooms.size();
+    }
+
+    // called by a room on its own tick thread once its last player has left. players whose joins are still queued keep it open
+    synchronized void closeIfEmpty(Room room) {
+        if (room.getOccupants() > 0) {
+            return;
+        }
+        room.close();
+        rooms.remove(room);
+        Placement placement = placements.remove(room);
+        if (placement != null) {
+            placement.schedule.cancel(false);
+            roomsPerLoop[placement.loop]--;
+        }
+        LOG.info("Closed " + room.getName() + ", " + rooms.size() + " rooms running");
+    }
+
+    public void shutdown() {
+        for (ScheduledExecutorService loop : loops) {
+            loop.shutdown();
+        }
+    }
+}
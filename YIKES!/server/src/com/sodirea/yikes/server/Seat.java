@@ -0,0 +1,44 @@
+package com.sodirea.yikes.server;
+
+import com.sodirea.yikes.net.InputBuffer;
+import com.sodirea.yikes.net.SnapshotHistory;
+import com.sodirea.yikes.sim.Player;
+
+// a client's place in a room: their connection, their player in the simulation, the small number that stands for them in binary messages,
+// the input commands they sent that the room hasn't run yet and how much has been sent to them. only touched on the room's tick thread
+public class Seat {
+
+    public static final int INPUT_CAPACITY = 64; // a little over a second of commands
+
+    public final Connection connection;
+    public final Player player;
+    public final int number;
+    public final InputBuffer pendingInputs;
+    public int lastQueuedSequence; // the newest command put in pendingInputs, so repeated ones are ignored
+    public int lastAppliedSequence; // the newest command run, which worldState acknowledges. -1 before the first one
+    public final SnapshotHistory views; // the last world snapshots sent to them, each holding just the balls they were sent, see Room.broadcastWorld
+    public int lastView; // the id of the newest one. ids count up from 1 separately for every seat
+    public int acknowledgedSnapshot; // the newest of them the client has, which the next worldState is encoded against. 0 for none
+    public final SendRate sendRate;
+    public final long joinedAt; // System.nanoTime() when they were seated, for the bandwidth stats
+    public long bytesSent; // worldState bytes sent to them
+    public int snapshotsSent;
+    public int fullSnapshotsSent; // sent without a baseline, because they hadn't acknowledged one yet or it was too old
+
+    public Seat(Connection connection, Player player, int number, int snapshotHistory, int roomSize) {
+        this.connection = connection;
+        this.player = player;
+        this.number = number;
+        pendingInputs = new InputBuffer(INPUT_CAPACITY);
+        lastQueuedSequence = -1;
+        lastAppliedSequence = -1;
+        views = new SnapshotHistory(snapshotHistory, roomSize);
+        lastView = 0;
+        acknowledgedSnapshot = 0;
+        sendRate = new SendRate(snapshotHistory);
+        joinedAt = System.nanoTime();
+        bytesSent = 0;
+        snapshotsSent = 0;
+        fullSnapshotsSent = 0;
+    }
+}
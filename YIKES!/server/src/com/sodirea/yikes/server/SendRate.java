@@ -0,0 +1,119 @@
+package com.sodirea.yikes.server;
+
+// how often one client is sent world states, adapted to what their connection can take. every acknowledged world state gives a round trip sample and
+// shows how many bytes reached them. when the round trip climbs well above the best one seen recently (messages queueing somewhere on the way) or more
+// is unacknowledged than their measured delivery rate can clear in a couple of round trips, the interval between world states grows by half. otherwise it
+// shrinks by a tick at a time back to the full rate. only touched on the room's tick thread
+public class SendRate {
+
+    public static final int MIN_INTERVAL_TICKS = 3; // 20 world states a second, the rate clients send their inputs at
+    public static final int MAX_INTERVAL_TICKS = 15; // 4 a second, still enough to interpolate between
+    public static final long ADAPT_NANOS = 500000000L; // how often the interval is reconsidered
+    public static final long MIN_ROUND_TRIP_WINDOW_NANOS = 10000000000L; // how long the best round trip is remembered, so a route change is noticed
+    public static final long QUEUEING_TOLERANCE_NANOS = 60000000L; // how far above the best round trip still counts as not queueing
+    public static final int MIN_BYTES_IN_FLIGHT = 4096; // never back off for less than this unacknowledged, whatever the measurements say
+
+    private final long[] sentAt; // indexed by world state id % capacity
+    private final int[] sentBytes;
+    private int interval;
+    private int lastSent; // the newest world state id sent
+    private int acknowledged; // the newest id the client acknowledged
+    private long lastSentTick;
+    private long roundTrip; // smoothed, in nanoseconds
+    private long minRoundTrip;
+    private long windowMinRoundTrip; // the best round trip in the current window, which becomes minRoundTrip when the window ends
+    private long windowStart;
+    private double deliveryRate; // smoothed bytes per second reaching the client
+    private long lastAcknowledgedAt;
+    private long lastAdapted;
+
+    public SendRate(int capacity) {
+        sentAt = new long[capacity];
+        sentBytes = new int[capacity];
+        interval = MIN_INTERVAL_TICKS;
+        lastSent = 0;
+        acknowledged = 0;
+        lastSentTick = Long.MIN_VALUE / 2;
+        roundTrip = -1;
+        minRoundTrip = Long.MAX_VALUE;
+        windowMinRoundTrip = Long.MAX_VALUE;
+        windowStart = System.nanoTime();
+        deliveryRate = 0;
+        lastAcknowledgedAt = 0;
+        lastAdapted = windowStart;
+    }
+
+    // whether the client should get this tick's world state
+    public boolean isDue(long tick, long now) {
+        if (now - lastAdapted >= ADAPT_NANOS) {
+            adapt();
+            lastAdapted = now;
+        }
+        return tick - lastSentTick >= interval;
+    }
+
+    public void sent(int id, int bytes, long tick, long now) {
+        sentAt[id % sentAt.length] = now;
+        sentBytes[id % sentAt.length] = bytes;
+        lastSent = id;
+        lastSentTick = tick;
+    }
+
+    public void acknowledged(int id, long now) {
+        if (id <= acknowledged || id > lastSent) {
+            return;
+        }
+        int newlyAcknowledged = bytesBetween(acknowledged, id);
+        acknowledged = id;
+        if (lastSent - id >= sentAt.length) {
+            return; // too old to still have its send time
+        }
+        long sample = now - sentAt[id % sentAt.length];
+        roundTrip = roundTrip < 0 ? sample : roundTrip + (sample - roundTrip) / 8;
+        windowMinRoundTrip = Math.min(windowMinRoundTrip, sample);
+        minRoundTrip = Math.min(minRoundTrip, sample);
+        if (now - windowStart >= MIN_ROUND_TRIP_WINDOW_NANOS) {
+            minRoundTrip = windowMinRoundTrip;
+            windowMinRoundTrip = Long.MAX_VALUE;
+            windowStart = now;
+        }
+        if (lastAcknowledgedAt != 0 && now > lastAcknowledgedAt) {
+            double rate = newlyAcknowledged * 1e9 / (now - lastAcknowledgedAt);
+            deliveryRate = deliveryRate == 0 ? rate : deliveryRate + (rate - deliveryRate) / 8;
+        }
+        lastAcknowledgedAt = now;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    // smoothed round trip in nanoseconds, -1 before the first acknowledgement
+    public long getRoundTrip() {
+        return roundTrip;
+    }
+
+    public double getDeliveryRate() {
+        return deliveryRate;
+    }
+
+    private void adapt() {
+        boolean queueing = roundTrip >= 0 && minRoundTrip != Long.MAX_VALUE && roundTrip > minRoundTrip + QUEUEING_TOLERANCE_NANOS;
+        long window = roundTrip < 0 ? 0 : (long) (2 * deliveryRate * roundTrip / 1e9);
+        boolean backlogged = bytesBetween(acknowledged, lastSent) > Math.max(MIN_BYTES_IN_FLIGHT, window);
+        if (queueing || backlogged) {
+            interval = Math.min(MAX_INTERVAL_TICKS, interval + Math.max(1, interval / 2));
+        } else if (interval > MIN_INTERVAL_TICKS) {
+            interval--;
+        }
+    }
+
+    // the bytes of the world states after from, up to and including to, as far as they are still remembered
+    private int bytesBetween(int from, int to) {
+        int bytes = 0;
+        for (int id = Math.max(from + 1, to - sentAt.length + 1); id <= to; id++) {
+            bytes += sentBytes[id % sentAt.length];
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,41 @@
+package com.sodirea.yikes.server;
+
+public class ServerLauncher {
+	public static void main (String[] arg) {
+		// the port can be given as an argument, or through PORT like the old node server
+		int port = 5000;
+		if (arg.length > 0) {
+			port = Integer.parseInt(arg[0]);
+		} else if (System.getenv("PORT") != null) {
+			port = Integer.parseInt(System.getenv("PORT"));
+		}
+		// rooms run on one thread per core unless told otherwise, as the second argument or through ROOM_LOOPS
+		int roomLoops = Runtime.getRuntime().availableProcessors();
+		if (arg.length > 1) {
+			roomLoops = Integer.parseInt(arg[1]);
+		} else if (System.getenv("ROOM_LOOPS") != null) {
+			roomLoops = Integer.parseInt(System.getenv("ROOM_LOOPS"));
+		}
+		// rooms are formed once MATCH_SIZE players are waiting, or after MATCH_TIMEOUT_MS with whoever is there. a match size of 1 skips the wait, e.g. for a local server
+		int matchSize = Room.MAX_PLAYERS;
+		if (System.getenv("MATCH_SIZE") != null) {
+			matchSize = Math.min(Integer.parseInt(System.getenv("MATCH_SIZE")), Room.MAX_PLAYERS);
+		}
+		long matchTimeoutMillis = GameServer.DEFAULT_MATCH_TIMEOUT_MILLIS;
+		if (System.getenv("MATCH_TIMEOUT_MS") != null) {
+			matchTimeoutMillis = Long.parseLong(System.getenv("MATCH_TIMEOUT_MS"));
+		}
+		final GameServer server = new GameServer(port, roomLoops, matchSize, matchTimeoutMillis);
+		// clients can also play over UDP, connecting to udp://host:UDP_PORT, when it is set
+		if (System.getenv("UDP_PORT") != null) {
+			server.listenForDatagrams(Integer.parseInt(System.getenv("UDP_PORT")));
+		}
+		server.start();
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				server.stop();
+			}
+		});
+	}
+}
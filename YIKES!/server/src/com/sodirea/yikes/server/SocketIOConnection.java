@@ -0,0 +1,34 @@
+package com.sodirea.yikes.server;
+
+import com.corundumstudio.socketio.SocketIOClient;
+
+import java.util.UUID;
+
+// a client connected through socket.io, where everything arrives
+public class SocketIOConnection implements Connection {
+
+    private final SocketIOClient client;
+
+    public SocketIOConnection(SocketIOClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public UUID getId() {
+        return client.getSessionId();
+    }
+
+    @Override
+    public void send(String event, Object data) {
+        if (data == null) {
+            client.sendEvent(event);
+        } else {
+            client.sendEvent(event, data);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return client.isChannelOpen();
+    }
+}